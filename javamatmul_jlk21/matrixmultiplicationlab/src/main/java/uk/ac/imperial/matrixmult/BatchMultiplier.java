@@ -0,0 +1,145 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Multiplies many independent pairs in one call. The batch is cut into one contiguous slice per
+ * worker and every product is computed start to finish by a single thread, which is what small
+ * products need: splitting a 32 x 32 product across threads costs more than computing it. Each
+ * product is reported to the context's listeners on its own, as a sequential BATCH (or SPARSE)
+ * product.
+ */
+public class BatchMultiplier {
+
+  public static List<Matrix> multiply(
+      List<? extends Matrix> as, List<? extends Matrix> bs, MatrixMultiplierContext context)
+      throws Exception {
+    if (as.size() != bs.size()) {
+      throw new IllegalArgumentException("Batches must have the same number of matrices");
+    }
+    for (int i = 0; i < as.size(); i++) {
+      if (as.get(i).getNumColumns() != bs.get(i).getNumRows()) {
+        throw new IllegalArgumentException("Matrix dimensions do not match for pair " + i);
+      }
+    }
+    Matrix[] results = new Matrix[as.size()];
+    RowBandKernel kernel = VectorMatrixMultiplier.kernel();
+    runInSlices(
+        as.size(),
+        context,
+        (first, last) -> {
+          for (int i = first; i < last; i++) {
+            results[i] = multiplyOne(as.get(i), bs.get(i), kernel, context);
+          }
+        });
+    return new ArrayList<>(Arrays.asList(results));
+  }
+
+  public static MatrixBatch multiply(MatrixBatch a, MatrixBatch b, MatrixMultiplierContext context)
+      throws Exception {
+    if (a.getCount() != b.getCount()) {
+      throw new IllegalArgumentException("Batches must have the same number of matrices");
+    }
+    if (a.getNumColumns() != b.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    MatrixBatch result = new MatrixBatch(a.getCount(), rows, cols);
+    double[] aData = a.getData();
+    double[] bData = b.getData();
+    double[] cData = result.getData();
+    runInSlices(
+        a.getCount(),
+        context,
+        (first, last) -> {
+          for (int i = first; i < last; i++) {
+            long start = System.nanoTime();
+            multiplyStrided(
+                aData,
+                i * a.getStride(),
+                bData,
+                i * b.getStride(),
+                cData,
+                i * result.getStride(),
+                rows,
+                inner,
+                cols);
+            long computed = System.nanoTime() - start;
+            context.report("BATCH", true, rows, inner, cols, 0, computed, new long[] {computed});
+          }
+        });
+    return result;
+  }
+
+  private static Matrix multiplyOne(
+      Matrix a, Matrix b, RowBandKernel kernel, MatrixMultiplierContext context) {
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    long start = System.nanoTime();
+    if (a instanceof SparseMatrix || b instanceof SparseMatrix) {
+      Matrix result = SparseMultiplier.multiply(a, b);
+      long computed = System.nanoTime() - start;
+      context.report("SPARSE", true, rows, inner, cols, 0, computed, new long[] {computed});
+      return result;
+    }
+    double[] flatA = MatrixFlatArray.of(a).data();
+    double[] flatB = MatrixFlatArray.of(b).data();
+    MatrixFlatArray result = new MatrixFlatArray(rows, cols);
+    long packed = System.nanoTime();
+    kernel.multiplyRows(flatA, flatB, result.data(), inner, cols, 0, rows);
+    long computed = System.nanoTime() - packed;
+    context.report(
+        "BATCH", true, rows, inner, cols, packed - start, computed, new long[] {computed});
+    return result;
+  }
+
+  /** A plain i-k-j product of row-major blocks at the given offsets; small blocks fit in cache. */
+  static void multiplyStrided(
+      double[] a,
+      int aOffset,
+      double[] b,
+      int bOffset,
+      double[] c,
+      int cOffset,
+      int rows,
+      int inner,
+      int cols) {
+    for (int i = 0; i < rows; i++) {
+      int aRow = aOffset + i * inner;
+      int cRow = cOffset + i * cols;
+      for (int k = 0; k < inner; k++) {
+        double aik = a[aRow + k];
+        int bRow = bOffset + k * cols;
+        for (int j = 0; j < cols; j++) {
+          c[cRow + j] += aik * b[bRow + j];
+        }
+      }
+    }
+  }
+
+  private interface Slice {
+    void run(int first, int last);
+  }
+
+  private static void runInSlices(int count, MatrixMultiplierContext context, Slice slice)
+      throws Exception {
+    int numSlices = Math.min(count, context.getNumThreads());
+    if (numSlices <= 1) {
+      slice.run(0, count);
+      return;
+    }
+    CompletableFuture<?>[] slices = new CompletableFuture<?>[numSlices];
+    for (int s = 0; s < numSlices; s++) {
+      int first = (int) ((long) count * s / numSlices);
+      int last = (int) ((long) count * (s + 1) / numSlices);
+      slices[s] = CompletableFuture.runAsync(() -> slice.run(first, last), context.executor());
+    }
+    CompletableFuture.allOf(slices).get();
+  }
+}
@@ -0,0 +1,140 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/**
+ * The index arrays shared by the CSR and CSC formats. Entries are grouped by their major index
+ * (the row for CSR, the column for CSC): the entries of major line m occupy positions
+ * [pointers[m], pointers[m + 1]) of {@code indices} and {@code values}, sorted by minor index.
+ * Only non-zero values are stored.
+ */
+class CompressedSparseArrays {
+  final int majorSize;
+  final int minorSize;
+  final int[] pointers;
+  int[] indices;
+  double[] values;
+
+  CompressedSparseArrays(int majorSize, int minorSize) {
+    this(majorSize, minorSize, new int[majorSize + 1], new int[0], new double[0]);
+  }
+
+  CompressedSparseArrays(
+      int majorSize, int minorSize, int[] pointers, int[] indices, double[] values) {
+    if (majorSize <= 0 || minorSize <= 0) {
+      throw new IllegalArgumentException("Matrix must have at least one row and one column");
+    }
+    if (pointers.length != majorSize + 1 || indices.length < pointers[majorSize]) {
+      throw new IllegalArgumentException("Index arrays do not match the matrix dimensions");
+    }
+    this.majorSize = majorSize;
+    this.minorSize = minorSize;
+    this.pointers = pointers;
+    this.indices = indices;
+    this.values = values;
+  }
+
+  int nonZeros() {
+    return pointers[majorSize];
+  }
+
+  private void checkBounds(int major, int minor) {
+    if (major < 0 || major >= majorSize || minor < 0 || minor >= minorSize) {
+      throw new IndexOutOfBoundsException("(" + major + ", " + minor + ")");
+    }
+  }
+
+  private int find(int major, int minor) {
+    return Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+  }
+
+  double get(int major, int minor) {
+    checkBounds(major, minor);
+    int position = find(major, minor);
+    return position >= 0 ? values[position] : 0.0;
+  }
+
+  /** Costs O(nnz) when a new entry is inserted or an existing one is zeroed. */
+  void set(int major, int minor, double value) {
+    checkBounds(major, minor);
+    int position = find(major, minor);
+    int nnz = nonZeros();
+    if (position >= 0) {
+      if (value != 0.0) {
+        values[position] = value;
+        return;
+      }
+      System.arraycopy(indices, position + 1, indices, position, nnz - position - 1);
+      System.arraycopy(values, position + 1, values, position, nnz - position - 1);
+      for (int m = major + 1; m <= majorSize; m++) {
+        pointers[m]--;
+      }
+    } else if (value != 0.0) {
+      position = -position - 1;
+      if (nnz == indices.length) {
+        int capacity = Math.max(8, nnz + (nnz >> 1));
+        indices = Arrays.copyOf(indices, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      System.arraycopy(indices, position, indices, position + 1, nnz - position);
+      System.arraycopy(values, position, values, position + 1, nnz - position);
+      indices[position] = minor;
+      values[position] = value;
+      for (int m = major + 1; m <= majorSize; m++) {
+        pointers[m]++;
+      }
+    }
+  }
+
+  /** Regroups the entries by their minor index, converting CSR to CSC and vice versa. */
+  CompressedSparseArrays transpose() {
+    int nnz = nonZeros();
+    int[] tPointers = new int[minorSize + 1];
+    int[] tIndices = new int[nnz];
+    double[] tValues = new double[nnz];
+    for (int i = 0; i < nnz; i++) {
+      tPointers[indices[i] + 1]++;
+    }
+    for (int m = 0; m < minorSize; m++) {
+      tPointers[m + 1] += tPointers[m];
+    }
+    int[] next = Arrays.copyOf(tPointers, minorSize);
+    for (int major = 0; major < majorSize; major++) {
+      for (int i = pointers[major]; i < pointers[major + 1]; i++) {
+        int position = next[indices[i]]++;
+        tIndices[position] = major;
+        tValues[position] = values[i];
+      }
+    }
+    return new CompressedSparseArrays(minorSize, majorSize, tPointers, tIndices, tValues);
+  }
+
+  /** Compresses a dense matrix that {@code lines} reads out one major line at a time. */
+  static CompressedSparseArrays compress(int majorSize, int minorSize, LineReader lines) {
+    int[] pointers = new int[majorSize + 1];
+    int[] indices = new int[8];
+    double[] values = new double[8];
+    double[] line = new double[minorSize];
+    int nnz = 0;
+    for (int major = 0; major < majorSize; major++) {
+      lines.read(major, line);
+      for (int minor = 0; minor < minorSize; minor++) {
+        if (line[minor] != 0.0) {
+          if (nnz == indices.length) {
+            indices = Arrays.copyOf(indices, nnz * 2);
+            values = Arrays.copyOf(values, nnz * 2);
+          }
+          indices[nnz] = minor;
+          values[nnz] = line[minor];
+          nnz++;
+        }
+      }
+      pointers[major + 1] = nnz;
+    }
+    return new CompressedSparseArrays(majorSize, minorSize, pointers, indices, values);
+  }
+
+  interface LineReader {
+    void read(int major, double[] destination);
+  }
+}
@@ -0,0 +1,209 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SUMMA over {@link MatrixWorkerServer}s. A, B and C are cut into square tiles. The C tiles are
+ * dealt out block-cyclically over a {@code gridRows x gridColumns} grid of workers, so worker (p,
+ * q) owns every C(i, j) with {@code i % gridRows == p} and {@code j % gridColumns == q}. For each
+ * step k along the inner dimension, every worker is sent A(i, k) for its block rows and B(k, j)
+ * for its block columns, and adds their products into its C tiles. Finally the C tiles are
+ * gathered back.
+ *
+ * <p>Each worker is driven by its own coordinator thread and receives every step without waiting
+ * for the previous one to be acknowledged, so sending and computing overlap.
+ *
+ * <p>If a worker cannot be reached or fails, {@link #multiply} throws an IOException naming it.
+ */
+public class DistributedMultiplier {
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private final List<InetSocketAddress> workers;
+  private final int tileSize;
+  private final int gridRows;
+  private final int gridColumns;
+
+  public DistributedMultiplier(List<InetSocketAddress> workers, int tileSize) {
+    if (workers.isEmpty()) {
+      throw new IllegalArgumentException("At least one worker is needed");
+    }
+    if (tileSize <= 0 || (long) tileSize * tileSize > WorkerProtocol.MAX_TILE_DOUBLES) {
+      throw new IllegalArgumentException("Tile size out of range: " + tileSize);
+    }
+    this.workers = new ArrayList<>(workers);
+    this.tileSize = tileSize;
+    // The squarest grid that uses every worker
+    int rows = (int) Math.sqrt(workers.size());
+    while (workers.size() % rows != 0) {
+      rows--;
+    }
+    this.gridRows = rows;
+    this.gridColumns = workers.size() / rows;
+  }
+
+  public DistributedMultiplier(List<InetSocketAddress> workers) {
+    this(workers, DEFAULT_TILE_SIZE);
+  }
+
+  public int getGridRows() {
+    return gridRows;
+  }
+
+  public int getGridColumns() {
+    return gridColumns;
+  }
+
+  public Matrix multiply(Matrix a, Matrix b) throws Exception {
+    if (a.getNumColumns() != b.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    MatrixFlatArray flatA = MatrixFlatArray.of(a);
+    MatrixFlatArray flatB = MatrixFlatArray.of(b);
+    MatrixFlatArray result = new MatrixFlatArray(a.getNumRows(), b.getNumColumns());
+
+    ExecutorService coordinators = Executors.newFixedThreadPool(workers.size());
+    try {
+      CompletableFuture<?>[] parts = new CompletableFuture<?>[workers.size()];
+      for (int worker = 0; worker < workers.size(); worker++) {
+        int gridRow = worker / gridColumns;
+        int gridColumn = worker % gridColumns;
+        InetSocketAddress address = workers.get(worker);
+        parts[worker] =
+            CompletableFuture.runAsync(
+                () -> {
+                  try {
+                    drive(address, gridRow, gridColumn, flatA, flatB, result);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(
+                        new IOException("Worker " + address + ": " + e.getMessage(), e));
+                  }
+                },
+                coordinators);
+      }
+      CompletableFuture.allOf(parts).get();
+    } catch (ExecutionException e) {
+      // Rethrow what the failed worker's coordinator threw rather than the future's wrapper
+      Throwable cause = e.getCause();
+      if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } finally {
+      coordinators.shutdown();
+    }
+    return result;
+  }
+
+  private void drive(
+      InetSocketAddress address,
+      int gridRow,
+      int gridColumn,
+      MatrixFlatArray a,
+      MatrixFlatArray b,
+      MatrixFlatArray result)
+      throws IOException {
+    int blockRows = blocks(a.getNumRows());
+    int blockInner = blocks(a.getNumColumns());
+    int blockColumns = blocks(b.getNumColumns());
+    try (Socket socket = new Socket(address.getAddress(), address.getPort());
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+      socket.setTcpNoDelay(true);
+      int steps = 0;
+      try {
+        for (int k = 0; k < blockInner; k++) {
+          out.writeByte(WorkerProtocol.STEP);
+          out.writeInt(countOwned(blockRows, gridRow, gridRows));
+          for (int i = gridRow; i < blockRows; i += gridRows) {
+            out.writeInt(i);
+            WorkerProtocol.writeTile(out, tile(a, i, k));
+          }
+          out.writeInt(countOwned(blockColumns, gridColumn, gridColumns));
+          for (int j = gridColumn; j < blockColumns; j += gridColumns) {
+            out.writeInt(j);
+            WorkerProtocol.writeTile(out, tile(b, k, j));
+          }
+          steps++;
+        }
+        out.writeByte(WorkerProtocol.GATHER);
+        out.flush();
+      } catch (IOException e) {
+        // A worker that failed closes the connection; prefer its own report of why
+        if (steps == 0) {
+          throw e;
+        }
+      }
+      for (int step = 0; step < steps; step++) {
+        WorkerProtocol.readStatus(in);
+      }
+      WorkerProtocol.readStatus(in);
+      for (int count = in.readInt(); count > 0; count--) {
+        int i = in.readInt();
+        int j = in.readInt();
+        MatrixFlatArray tile = WorkerProtocol.readTile(in);
+        place(tile, result, i, j);
+      }
+    }
+  }
+
+  private int blocks(int size) {
+    return (size + tileSize - 1) / tileSize;
+  }
+
+  private static int countOwned(int blocks, int first, int stride) {
+    return first < blocks ? (blocks - first + stride - 1) / stride : 0;
+  }
+
+  private MatrixFlatArray tile(MatrixFlatArray m, int blockRow, int blockColumn) {
+    int firstRow = blockRow * tileSize;
+    int firstColumn = blockColumn * tileSize;
+    int rows = Math.min(tileSize, m.getNumRows() - firstRow);
+    int cols = Math.min(tileSize, m.getNumColumns() - firstColumn);
+    double[] data = new double[rows * cols];
+    double[] source = m.data();
+    for (int row = 0; row < rows; row++) {
+      System.arraycopy(
+          source, (firstRow + row) * m.getNumColumns() + firstColumn, data, row * cols, cols);
+    }
+    return new MatrixFlatArray(rows, cols, data);
+  }
+
+  private void place(MatrixFlatArray tile, MatrixFlatArray result, int blockRow, int blockColumn)
+      throws IOException {
+    int firstRow = blockRow * tileSize;
+    int firstColumn = blockColumn * tileSize;
+    int rows = tile.getNumRows();
+    int cols = tile.getNumColumns();
+    if (firstRow + rows > result.getNumRows() || firstColumn + cols > result.getNumColumns()) {
+      throw new IOException("Worker returned a tile outside the result");
+    }
+    for (int row = 0; row < rows; row++) {
+      System.arraycopy(
+          tile.data(),
+          row * cols,
+          result.data(),
+          (firstRow + row) * result.getNumColumns() + firstColumn,
+          cols);
+    }
+  }
+}
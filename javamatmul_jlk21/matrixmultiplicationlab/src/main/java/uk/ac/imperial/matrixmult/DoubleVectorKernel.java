@@ -0,0 +1,47 @@
+package uk.ac.imperial.matrixmult;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The tiled i-k-j kernel of {@link MatrixBlockMultiplier} with the innermost axpy loop written
+ * against {@link DoubleVector}. Only loaded through {@link VectorMatrixMultiplier}, which checks
+ * that the incubator module is present first.
+ */
+class DoubleVectorKernel {
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+  static int laneCount() {
+    return SPECIES.length();
+  }
+
+  static void multiplyRows(
+      double[] a, double[] b, double[] c, int inner, int cols, int firstRow, int lastRow) {
+    int tileSize = MatrixBlockMultiplier.TILE_SIZE;
+    for (int kk = 0; kk < inner; kk += tileSize) {
+      int kEnd = Math.min(kk + tileSize, inner);
+      for (int jj = 0; jj < cols; jj += tileSize) {
+        int jEnd = Math.min(jj + tileSize, cols);
+        int vectorEnd = jj + SPECIES.loopBound(jEnd - jj);
+        for (int i = firstRow; i < lastRow; i++) {
+          int aRow = i * inner;
+          int cRow = i * cols;
+          for (int k = kk; k < kEnd; k++) {
+            double aik = a[aRow + k];
+            DoubleVector va = DoubleVector.broadcast(SPECIES, aik);
+            int bRow = k * cols;
+            int j = jj;
+            for (; j < vectorEnd; j += SPECIES.length()) {
+              DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bRow + j);
+              DoubleVector vc = DoubleVector.fromArray(SPECIES, c, cRow + j);
+              va.fma(vb, vc).intoArray(c, cRow + j);
+            }
+            for (; j < jEnd; j++) {
+              c[cRow + j] += aik * b[bRow + j];
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * A single-precision matrix. Half the memory traffic of {@link Matrix} and twice the SIMD lanes,
+ * for workloads that can live with about 7 significant digits.
+ */
+public interface FloatMatrix {
+
+  public float get(int row, int column);
+
+  public void set(int row, int column, float value);
+
+  public int getNumRows();
+
+  public int getNumColumns();
+
+  public default float[] getRow(int row) {
+    float[] values = new float[getNumColumns()];
+    for (int column = 0; column < values.length; column++) {
+      values[column] = get(row, column);
+    }
+    return values;
+  }
+
+  public default boolean equals(FloatMatrix m, double delta) {
+    if ((m.getNumRows() != this.getNumRows()) || (m.getNumColumns() != this.getNumColumns())) {
+      return false;
+    }
+
+    int rows = m.getNumRows();
+    int columns = m.getNumColumns();
+
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        if (Math.abs(this.get(row, column) - m.get(row, column)) > delta) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
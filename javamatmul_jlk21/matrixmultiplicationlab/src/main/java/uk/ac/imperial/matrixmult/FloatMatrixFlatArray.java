@@ -0,0 +1,105 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/** The single-precision counterpart of {@link MatrixFlatArray}. */
+public class FloatMatrixFlatArray implements FloatMatrix {
+  private final float[] matrix;
+  private final int nRows;
+  private final int nCols;
+
+  public FloatMatrixFlatArray(int nRows, int nCols) {
+    if (nRows <= 0 || nCols <= 0) {
+      throw new IllegalArgumentException("Matrix must have at least one row and one column");
+    }
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.matrix = new float[Math.multiplyExact(nRows, nCols)];
+  }
+
+  /** Rounds every value of m to the nearest float. */
+  public static FloatMatrixFlatArray of(Matrix m) {
+    int rows = m.getNumRows();
+    int cols = m.getNumColumns();
+    FloatMatrixFlatArray copy = new FloatMatrixFlatArray(rows, cols);
+    for (int row = 0; row < rows; row++) {
+      double[] values = m.getRow(row);
+      for (int col = 0; col < cols; col++) {
+        copy.matrix[row * cols + col] = (float) values[col];
+      }
+    }
+    return copy;
+  }
+
+  /** Returns m itself if it is already flat, otherwise a flat copy of it. */
+  public static FloatMatrixFlatArray of(FloatMatrix m) {
+    if (m instanceof FloatMatrixFlatArray) {
+      return (FloatMatrixFlatArray) m;
+    }
+    int rows = m.getNumRows();
+    int cols = m.getNumColumns();
+    FloatMatrixFlatArray copy = new FloatMatrixFlatArray(rows, cols);
+    for (int row = 0; row < rows; row++) {
+      System.arraycopy(m.getRow(row), 0, copy.matrix, row * cols, cols);
+    }
+    return copy;
+  }
+
+  /** Widens every value to double, which is exact. */
+  public MatrixFlatArray toDouble() {
+    double[] values = new double[matrix.length];
+    for (int i = 0; i < matrix.length; i++) {
+      values[i] = matrix[i];
+    }
+    return new MatrixFlatArray(nRows, nCols, values);
+  }
+
+  float[] data() {
+    return matrix;
+  }
+
+  private int index(int row, int column) {
+    if (row < 0 || row >= nRows || column < 0 || column >= nCols) {
+      throw new IndexOutOfBoundsException("(" + row + ", " + column + ")");
+    }
+    return row * nCols + column;
+  }
+
+  @Override
+  public float get(int row, int column) {
+    return matrix[index(row, column)];
+  }
+
+  @Override
+  public void set(int row, int column, float value) {
+    matrix[index(row, column)] = value;
+  }
+
+  @Override
+  public int getNumRows() {
+    return nRows;
+  }
+
+  @Override
+  public int getNumColumns() {
+    return nCols;
+  }
+
+  @Override
+  public float[] getRow(int row) {
+    int start = index(row, 0);
+    return Arrays.copyOfRange(matrix, start, start + nCols);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int row = 0; row < nRows; row++) {
+      if (row > 0) {
+        sb.append(", ");
+      }
+      sb.append(Arrays.toString(getRow(row)));
+    }
+    return sb.append("]").toString();
+  }
+}
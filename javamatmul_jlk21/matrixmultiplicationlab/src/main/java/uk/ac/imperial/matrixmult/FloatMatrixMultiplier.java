@@ -0,0 +1,87 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Single-precision products, split into row bands on the shared context's workers like the
+ * double engines. Sums are accumulated in float, so each cell is within
+ * {@code n^2 * 2^-24 * max|a| * max|b|} of the exact product of the float inputs.
+ */
+public class FloatMatrixMultiplier {
+
+  interface FloatRowBandKernel {
+    void multiplyRows(
+        float[] a, float[] b, float[] c, int inner, int cols, int firstRow, int lastRow);
+  }
+
+  private static final FloatRowBandKernel KERNEL = chooseKernel();
+
+  private static FloatRowBandKernel chooseKernel() {
+    if (VectorMatrixMultiplier.isVectorized()) {
+      try {
+        if (FloatVectorKernel.laneCount() > 1) {
+          return FloatVectorKernel::multiplyRows;
+        }
+      } catch (LinkageError e) {
+        // Fall through to the scalar kernel
+      }
+    }
+    return FloatMatrixMultiplier::multiplyRows;
+  }
+
+  public static FloatMatrixFlatArray multiply(FloatMatrix a, FloatMatrix b) throws Exception {
+    if (a.getNumColumns() != b.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    float[] flatA = FloatMatrixFlatArray.of(a).data();
+    float[] flatB = FloatMatrixFlatArray.of(b).data();
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    FloatMatrixFlatArray result = new FloatMatrixFlatArray(rows, cols);
+    float[] c = result.data();
+
+    MatrixMultiplierContext context = MatrixMultiplierContext.shared();
+    if ((long) rows * inner * cols < context.getSequentialThreshold()) {
+      KERNEL.multiplyRows(flatA, flatB, c, inner, cols, 0, rows);
+      return result;
+    }
+    int numThreads = context.getNumThreads();
+    int bandSize = (rows + numThreads - 1) / numThreads;
+    int numBands = (rows + bandSize - 1) / bandSize;
+    CompletableFuture<?>[] bands = new CompletableFuture<?>[numBands];
+    for (int band = 0; band < numBands; band++) {
+      int firstRow = band * bandSize;
+      int lastRow = Math.min(firstRow + bandSize, rows);
+      bands[band] =
+          CompletableFuture.runAsync(
+              () -> KERNEL.multiplyRows(flatA, flatB, c, inner, cols, firstRow, lastRow),
+              context.executor());
+    }
+    CompletableFuture.allOf(bands).get();
+    return result;
+  }
+
+  /** The scalar tiled i-k-j kernel, as {@link MatrixBlockMultiplier#multiplyRows} for floats. */
+  static void multiplyRows(
+      float[] a, float[] b, float[] c, int inner, int cols, int firstRow, int lastRow) {
+    int tileSize = MatrixBlockMultiplier.TILE_SIZE;
+    for (int kk = 0; kk < inner; kk += tileSize) {
+      int kEnd = Math.min(kk + tileSize, inner);
+      for (int jj = 0; jj < cols; jj += tileSize) {
+        int jEnd = Math.min(jj + tileSize, cols);
+        for (int i = firstRow; i < lastRow; i++) {
+          int aRow = i * inner;
+          int cRow = i * cols;
+          for (int k = kk; k < kEnd; k++) {
+            float aik = a[aRow + k];
+            int bRow = k * cols;
+            for (int j = jj; j < jEnd; j++) {
+              c[cRow + j] += aik * b[bRow + j];
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package uk.ac.imperial.matrixmult;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/** The float version of {@link DoubleVectorKernel}, with twice as many lanes per vector. */
+class FloatVectorKernel {
+  private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+  static int laneCount() {
+    return SPECIES.length();
+  }
+
+  static void multiplyRows(
+      float[] a, float[] b, float[] c, int inner, int cols, int firstRow, int lastRow) {
+    int tileSize = MatrixBlockMultiplier.TILE_SIZE;
+    for (int kk = 0; kk < inner; kk += tileSize) {
+      int kEnd = Math.min(kk + tileSize, inner);
+      for (int jj = 0; jj < cols; jj += tileSize) {
+        int jEnd = Math.min(jj + tileSize, cols);
+        int vectorEnd = jj + SPECIES.loopBound(jEnd - jj);
+        for (int i = firstRow; i < lastRow; i++) {
+          int aRow = i * inner;
+          int cRow = i * cols;
+          for (int k = kk; k < kEnd; k++) {
+            float aik = a[aRow + k];
+            FloatVector va = FloatVector.broadcast(SPECIES, aik);
+            int bRow = k * cols;
+            int j = jj;
+            for (; j < vectorEnd; j += SPECIES.length()) {
+              FloatVector vb = FloatVector.fromArray(SPECIES, b, bRow + j);
+              FloatVector vc = FloatVector.fromArray(SPECIES, c, cRow + j);
+              va.mul(vb).add(vc).intoArray(c, cRow + j);
+            }
+            for (; j < jEnd; j++) {
+              c[cRow + j] += aik * b[bRow + j];
+            }
+          }
+        }
+      }
+    }
+  }
+}
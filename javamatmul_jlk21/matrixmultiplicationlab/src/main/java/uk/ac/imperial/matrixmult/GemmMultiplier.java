@@ -0,0 +1,186 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The BLAS-style update {@code C = alpha * op(A) * op(B) + beta * C}, where op is either the
+ * identity or the transpose. Transposes are never materialised: each of the four combinations has
+ * its own loop order, chosen so that the innermost loop walks memory contiguously wherever the
+ * layout allows. C is updated in place, split into bands of rows on the context's workers.
+ *
+ * <p>C must be a {@link MatrixFlatArray}, so that it is written without a copy. A and B are read
+ * in the same layout: any other matrix is copied into it on every call, so operands that take
+ * part in many updates should be built with {@link MatrixLayout#FLAT}.
+ */
+public class GemmMultiplier {
+
+  public static void gemm(
+      boolean transposeA,
+      boolean transposeB,
+      double alpha,
+      Matrix a,
+      Matrix b,
+      double beta,
+      MatrixFlatArray c,
+      MatrixMultiplierContext context)
+      throws Exception {
+    int m = transposeA ? a.getNumColumns() : a.getNumRows();
+    int inner = transposeA ? a.getNumRows() : a.getNumColumns();
+    int innerB = transposeB ? b.getNumColumns() : b.getNumRows();
+    int n = transposeB ? b.getNumRows() : b.getNumColumns();
+    if (inner != innerB || c.getNumRows() != m || c.getNumColumns() != n) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    long start = System.nanoTime();
+    double[] aData = operand(a, c);
+    double[] bData = operand(b, c);
+    RowBandKernel kernel = VectorMatrixMultiplier.kernel();
+    double[] cData = c.data();
+
+    Band band =
+        (first, last) -> {
+          scale(cData, n, beta, first, last);
+          if (alpha == 0.0) {
+            return;
+          }
+          if (!transposeA && !transposeB && alpha == 1.0) {
+            kernel.multiplyRows(aData, bData, cData, inner, n, first, last);
+          } else if (!transposeA && !transposeB) {
+            multiplyNn(alpha, aData, bData, cData, inner, n, first, last);
+          } else if (!transposeA) {
+            multiplyNt(alpha, aData, bData, cData, inner, n, first, last);
+          } else if (!transposeB) {
+            multiplyTn(alpha, aData, bData, cData, m, inner, n, first, last);
+          } else {
+            multiplyTt(alpha, aData, bData, cData, m, inner, n, first, last);
+          }
+        };
+
+    long packed = System.nanoTime();
+    boolean sequential = (long) m * inner * n < context.getSequentialThreshold();
+    long[] busy;
+    if (sequential) {
+      band.run(0, m);
+      busy = new long[] {System.nanoTime() - packed};
+    } else {
+      int numThreads = context.getNumThreads();
+      int bandSize = (m + numThreads - 1) / numThreads;
+      int numBands = (m + bandSize - 1) / bandSize;
+      busy = new long[numBands];
+      CompletableFuture<?>[] bands = new CompletableFuture<?>[numBands];
+      for (int i = 0; i < numBands; i++) {
+        int index = i;
+        int first = i * bandSize;
+        int last = Math.min(first + bandSize, m);
+        bands[i] =
+            CompletableFuture.runAsync(
+                () -> {
+                  long bandStart = System.nanoTime();
+                  band.run(first, last);
+                  busy[index] = System.nanoTime() - bandStart;
+                },
+                context.executor());
+      }
+      CompletableFuture.allOf(bands).get();
+    }
+    long computed = System.nanoTime();
+    context.report("GEMM", sequential, m, inner, n, packed - start, computed - packed, busy);
+  }
+
+  /** The values of m in row-major order, copied if m is C, since C is overwritten as m is read. */
+  private static double[] operand(Matrix m, MatrixFlatArray c) {
+    MatrixFlatArray flat = MatrixFlatArray.of(m);
+    return flat == c ? flat.data().clone() : flat.data();
+  }
+
+  private interface Band {
+    void run(int firstRow, int lastRow);
+  }
+
+  /** Follows BLAS in treating beta = 0 as "overwrite", so NaNs already in C do not survive. */
+  private static void scale(double[] c, int n, double beta, int first, int last) {
+    if (beta == 1.0) {
+      return;
+    }
+    for (int i = first * n; i < last * n; i++) {
+      c[i] = beta == 0.0 ? 0.0 : beta * c[i];
+    }
+  }
+
+  /** C += alpha * A * B: i-k-j, streaming rows of B and C. */
+  private static void multiplyNn(
+      double alpha, double[] a, double[] b, double[] c, int inner, int n, int first, int last) {
+    for (int i = first; i < last; i++) {
+      for (int k = 0; k < inner; k++) {
+        double aik = alpha * a[i * inner + k];
+        int bRow = k * n;
+        int cRow = i * n;
+        for (int j = 0; j < n; j++) {
+          c[cRow + j] += aik * b[bRow + j];
+        }
+      }
+    }
+  }
+
+  /** C += alpha * A * B^T: i-j-k, a dot product of row i of A with row j of B. */
+  private static void multiplyNt(
+      double alpha, double[] a, double[] b, double[] c, int inner, int n, int first, int last) {
+    for (int i = first; i < last; i++) {
+      int aRow = i * inner;
+      for (int j = 0; j < n; j++) {
+        int bRow = j * inner;
+        double sum = 0;
+        for (int k = 0; k < inner; k++) {
+          sum += a[aRow + k] * b[bRow + k];
+        }
+        c[i * n + j] += alpha * sum;
+      }
+    }
+  }
+
+  /** C += alpha * A^T * B: k-i-j, A is read down its columns but B and C along their rows. */
+  private static void multiplyTn(
+      double alpha,
+      double[] a,
+      double[] b,
+      double[] c,
+      int m,
+      int inner,
+      int n,
+      int first,
+      int last) {
+    for (int k = 0; k < inner; k++) {
+      int bRow = k * n;
+      for (int i = first; i < last; i++) {
+        double aki = alpha * a[k * m + i];
+        int cRow = i * n;
+        for (int j = 0; j < n; j++) {
+          c[cRow + j] += aki * b[bRow + j];
+        }
+      }
+    }
+  }
+
+  /** C += alpha * A^T * B^T: i-j-k with B read along its rows; A is read down a column. */
+  private static void multiplyTt(
+      double alpha,
+      double[] a,
+      double[] b,
+      double[] c,
+      int m,
+      int inner,
+      int n,
+      int first,
+      int last) {
+    for (int i = first; i < last; i++) {
+      for (int j = 0; j < n; j++) {
+        int bRow = j * inner;
+        double sum = 0;
+        for (int k = 0; k < inner; k++) {
+          sum += a[k * m + i] * b[bRow + k];
+        }
+        c[i * n + j] += alpha * sum;
+      }
+    }
+  }
+}
@@ -0,0 +1,192 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/**
+ * Keeps {@code C = A * B} up to date as A and B change, patching C instead of recomputing it. For
+ * an m x k by k x n product:
+ *
+ * <ul>
+ *   <li>replacing a row of A recomputes that row of C, O(k * n);
+ *   <li>replacing a column of B recomputes that column of C, O(m * k);
+ *   <li>replacing a column of A or a row of B is a rank-1 change to C, O(m * n);
+ *   <li>adding a rank-r product {@code U * V} to A or B costs O(r * (k + m) * n) or
+ *       O(r * m * (k + n)).
+ * </ul>
+ *
+ * <p>The handle owns copies of A and B. The matrices returned by the getters are live and must not
+ * be modified directly. Replacing a row of A or a column of B recomputes part of C from the
+ * inputs. The other patches add to C, so their rounding errors build up; call {@link
+ * #recompute()} now and then after many of them.
+ */
+public class IncrementalProduct {
+  private final MatrixMultiplierContext context;
+  private final MatrixFlatArray a;
+  private final MatrixFlatArray b;
+  private final MatrixFlatArray c;
+
+  public IncrementalProduct(Matrix a, Matrix b, MatrixMultiplierContext context) throws Exception {
+    if (a.getNumColumns() != b.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    this.context = context;
+    this.a = copy(a);
+    this.b = copy(b);
+    this.c = new MatrixFlatArray(a.getNumRows(), b.getNumColumns());
+    recompute();
+  }
+
+  public IncrementalProduct(Matrix a, Matrix b) throws Exception {
+    this(a, b, MatrixMultiplierContext.shared());
+  }
+
+  private static MatrixFlatArray copy(Matrix m) {
+    MatrixFlatArray flat = MatrixFlatArray.of(m);
+    double[] data = flat == m ? flat.data().clone() : flat.data();
+    return new MatrixFlatArray(m.getNumRows(), m.getNumColumns(), data);
+  }
+
+  public Matrix getA() {
+    return a;
+  }
+
+  public Matrix getB() {
+    return b;
+  }
+
+  public Matrix getProduct() {
+    return c;
+  }
+
+  /**
+   * Recomputes C from scratch, discarding any drift from earlier patches. C is overwritten in
+   * place, so a matrix returned by {@link #getProduct()} stays current.
+   */
+  public void recompute() throws Exception {
+    GemmMultiplier.gemm(false, false, 1.0, a, b, 0.0, c, context);
+  }
+
+  /** Replaces row {@code row} of A and recomputes the same row of C. */
+  public void setRowOfA(int row, double[] values) {
+    checkIndex(row, a.getNumRows());
+    checkLength(values, a.getNumColumns());
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    System.arraycopy(values, 0, a.data(), row * inner, inner);
+    Arrays.fill(c.data(), row * cols, (row + 1) * cols, 0.0);
+    VectorMatrixMultiplier.kernel()
+        .multiplyRows(a.data(), b.data(), c.data(), inner, cols, row, row + 1);
+  }
+
+  /** Replaces column {@code column} of B and recomputes the same column of C. */
+  public void setColumnOfB(int column, double[] values) {
+    checkIndex(column, b.getNumColumns());
+    checkLength(values, b.getNumRows());
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    double[] aData = a.data();
+    double[] bData = b.data();
+    double[] cData = c.data();
+    for (int k = 0; k < inner; k++) {
+      bData[k * cols + column] = values[k];
+    }
+    for (int i = 0; i < rows; i++) {
+      double sum = 0.0;
+      int aRow = i * inner;
+      for (int k = 0; k < inner; k++) {
+        sum += aData[aRow + k] * values[k];
+      }
+      cData[i * cols + column] = sum;
+    }
+  }
+
+  /** Replaces column {@code column} of A, adding the change times row {@code column} of B to C. */
+  public void setColumnOfA(int column, double[] values) {
+    checkIndex(column, a.getNumColumns());
+    checkLength(values, a.getNumRows());
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    double[] aData = a.data();
+    double[] bData = b.data();
+    double[] cData = c.data();
+    int bRow = column * cols;
+    for (int i = 0; i < rows; i++) {
+      double delta = values[i] - aData[i * inner + column];
+      aData[i * inner + column] = values[i];
+      if (delta == 0.0) {
+        continue;
+      }
+      int cRow = i * cols;
+      for (int j = 0; j < cols; j++) {
+        cData[cRow + j] += delta * bData[bRow + j];
+      }
+    }
+  }
+
+  /** Replaces row {@code row} of B, adding column {@code row} of A times the change to C. */
+  public void setRowOfB(int row, double[] values) {
+    checkIndex(row, b.getNumRows());
+    checkLength(values, b.getNumColumns());
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = b.getNumColumns();
+    double[] aData = a.data();
+    double[] bData = b.data();
+    double[] cData = c.data();
+    double[] delta = new double[cols];
+    int bRow = row * cols;
+    for (int j = 0; j < cols; j++) {
+      delta[j] = values[j] - bData[bRow + j];
+      bData[bRow + j] = values[j];
+    }
+    for (int i = 0; i < rows; i++) {
+      double aik = aData[i * inner + row];
+      if (aik == 0.0) {
+        continue;
+      }
+      int cRow = i * cols;
+      for (int j = 0; j < cols; j++) {
+        cData[cRow + j] += aik * delta[j];
+      }
+    }
+  }
+
+  /** Adds {@code u * v} to A, where u is m x r and v is r x k, and {@code u * (v * B)} to C. */
+  public void updateA(Matrix u, Matrix v) throws Exception {
+    if (u.getNumRows() != a.getNumRows()
+        || v.getNumColumns() != a.getNumColumns()
+        || u.getNumColumns() != v.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    Matrix vb = context.multiply(v, b);
+    GemmMultiplier.gemm(false, false, 1.0, u, v, 1.0, a, context);
+    GemmMultiplier.gemm(false, false, 1.0, u, vb, 1.0, c, context);
+  }
+
+  /** Adds {@code u * v} to B, where u is k x r and v is r x n, and {@code (A * u) * v} to C. */
+  public void updateB(Matrix u, Matrix v) throws Exception {
+    if (u.getNumRows() != b.getNumRows()
+        || v.getNumColumns() != b.getNumColumns()
+        || u.getNumColumns() != v.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    Matrix au = context.multiply(a, u);
+    GemmMultiplier.gemm(false, false, 1.0, u, v, 1.0, b, context);
+    GemmMultiplier.gemm(false, false, 1.0, au, v, 1.0, c, context);
+  }
+
+  private static void checkIndex(int index, int size) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+  }
+
+  private static void checkLength(double[] values, int length) {
+    if (values.length != length) {
+      throw new IllegalArgumentException(
+          "Expected " + length + " values but got " + values.length);
+    }
+  }
+}
@@ -10,6 +10,21 @@ public interface Matrix {
 
   public int getNumColumns();
 
+  public default double[] getRow(int row) {
+    double[] values = new double[getNumColumns()];
+    for (int column = 0; column < values.length; column++) {
+      values[column] = get(row, column);
+    }
+    return values;
+  }
+
+  public default void getColumnInto(int column, double[] destination) {
+    int rows = getNumRows();
+    for (int row = 0; row < rows; row++) {
+      destination[row] = get(row, column);
+    }
+  }
+
   public default boolean equals(Matrix m, double delta) {
     if ((m.getNumRows() != this.getNumRows()) || (m.getNumColumns() != this.getNumColumns())) {
       return false;
@@ -39,6 +39,11 @@ public class MatrixArray implements Matrix {
     return matrix[0].length;
   }
 
+  @Override
+  public double[] getRow(int row) {
+    return matrix[row].clone();
+  }
+
   @Override
   public String toString() {
     return Arrays.deepToString(matrix);
@@ -0,0 +1,363 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picks the fastest engine for each kind of product by timing the candidates on this machine.
+ *
+ * <p>Products are grouped by size (the geometric mean of m, k and n), by aspect (whether the
+ * result is square-ish, tall or wide) and by whether an operand is stored sparse. {@link #tune()}
+ * times every candidate on a representative product of each group and keeps the winner; {@link
+ * #multiply} then looks up the group of its operands and runs that group's winner. Until a group
+ * is tuned it uses the sparse kernels for sparse operands and the vectorized or blocked kernel
+ * otherwise.
+ *
+ * <p>Tuned choices are saved as a properties file, by default {@code
+ * ~/.matrixmult-tuning.properties}, and {@link #shared()} loads it. Run {@link #main} to tune
+ * once per machine, or start the JVM with {@code -Dmatrixmult.autotune=true} to tune on first use
+ * if there is no file yet. A file tuned with a different core count is ignored.
+ */
+public class MatrixAutotuner {
+  public static final int[] TILE_SIZES = {16, 32, 64, 128};
+
+  static final String TUNING_FILE_PROPERTY = "matrixmult.tuning.file";
+  static final String AUTOTUNE_PROPERTY = "matrixmult.autotune";
+
+  private static final String PROCESSORS_KEY = "processors";
+  private static final int WARMUP_RUNS = 1;
+  private static final int TIMED_RUNS = 3;
+  private static final int SPARSITY = 100;
+
+  public enum Candidate {
+    /** One task per result cell, {@link MatrixMultiplier#multiply}. */
+    NAIVE,
+    /** The scalar tiled kernel in row bands, with the chosen tile size. */
+    BLOCKED,
+    VECTORIZED,
+    PACKED,
+    FORK_JOIN,
+    SPARSE
+  }
+
+  enum SizeClass {
+    SMALL(32),
+    MEDIUM(128),
+    LARGE(384);
+
+    final int representative;
+
+    SizeClass(int representative) {
+      this.representative = representative;
+    }
+
+    static SizeClass of(int m, int k, int n) {
+      double size = Math.cbrt((double) m * k * n);
+      return size < 64 ? SMALL : size < 256 ? MEDIUM : LARGE;
+    }
+  }
+
+  enum Aspect {
+    SQUARE,
+    TALL,
+    WIDE;
+
+    static Aspect of(int m, int n) {
+      if (m >= 4L * n) {
+        return TALL;
+      }
+      return n >= 4L * m ? WIDE : SQUARE;
+    }
+  }
+
+  /** A candidate together with its tile size, written as e.g. {@code BLOCKED:32}. */
+  public static final class Choice {
+    private final Candidate candidate;
+    private final int tileSize;
+
+    public Choice(Candidate candidate, int tileSize) {
+      if (candidate == Candidate.BLOCKED && tileSize <= 0) {
+        throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+      }
+      this.candidate = candidate;
+      this.tileSize = candidate == Candidate.BLOCKED ? tileSize : 0;
+    }
+
+    public Choice(Candidate candidate) {
+      this(candidate, MatrixBlockMultiplier.TILE_SIZE);
+    }
+
+    public Candidate getCandidate() {
+      return candidate;
+    }
+
+    public int getTileSize() {
+      return tileSize;
+    }
+
+    public static Choice parse(String text) {
+      int colon = text.indexOf(':');
+      if (colon < 0) {
+        return new Choice(Candidate.valueOf(text.trim()));
+      }
+      try {
+        return new Choice(
+            Candidate.valueOf(text.substring(0, colon).trim()),
+            Integer.parseInt(text.substring(colon + 1).trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Bad tile size in " + text, e);
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Choice)) {
+        return false;
+      }
+      Choice other = (Choice) o;
+      return candidate == other.candidate && tileSize == other.tileSize;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * candidate.hashCode() + tileSize;
+    }
+
+    @Override
+    public String toString() {
+      return candidate == Candidate.BLOCKED ? candidate + ":" + tileSize : candidate.toString();
+    }
+  }
+
+  private static class SharedHolder {
+    private static final MatrixAutotuner SHARED = createShared();
+  }
+
+  private final MatrixMultiplierContext context;
+  private final Map<String, Choice> choices = new ConcurrentHashMap<>();
+
+  public MatrixAutotuner(MatrixMultiplierContext context) {
+    this.context = context;
+  }
+
+  /**
+   * The tuner over the shared context, with the choices from the default tuning file if it
+   * exists.
+   */
+  public static MatrixAutotuner shared() {
+    return SharedHolder.SHARED;
+  }
+
+  public static Path defaultTuningFile() {
+    String file = System.getProperty(TUNING_FILE_PROPERTY);
+    if (file != null) {
+      return Paths.get(file);
+    }
+    return Paths.get(System.getProperty("user.home"), ".matrixmult-tuning.properties");
+  }
+
+  private static MatrixAutotuner createShared() {
+    MatrixAutotuner tuner = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    Path file = defaultTuningFile();
+    try {
+      if (!tuner.load(file) && Boolean.getBoolean(AUTOTUNE_PROPERTY)) {
+        tuner.tune();
+        tuner.save(file);
+      }
+    } catch (Exception e) {
+      // Tuning only affects speed, so carry on with the defaults
+      System.err.println("Matrix autotuning failed, using defaults: " + e);
+    }
+    return tuner;
+  }
+
+  public Matrix multiply(Matrix a, Matrix b) throws Exception {
+    if (a.getNumColumns() != b.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    return multiply(choose(a, b), a, b);
+  }
+
+  /** The engine {@link #multiply} would use for these operands. */
+  public Choice choose(Matrix a, Matrix b) {
+    String key = key(a, b);
+    Choice choice = choices.get(key);
+    return choice != null ? choice : defaultChoice(key);
+  }
+
+  /** Times every candidate on a representative product of each group. */
+  public void tune() throws Exception {
+    for (SizeClass size : SizeClass.values()) {
+      for (Aspect aspect : Aspect.values()) {
+        for (boolean sparse : new boolean[] {false, true}) {
+          tune(size, aspect, sparse);
+        }
+      }
+    }
+  }
+
+  Choice tune(SizeClass size, Aspect aspect, boolean sparse) throws Exception {
+    int s = size.representative;
+    int m = aspect == Aspect.TALL ? 2 * s : aspect == Aspect.WIDE ? s / 2 : s;
+    int n = aspect == Aspect.TALL ? s / 2 : aspect == Aspect.WIDE ? 2 * s : s;
+    Matrix a =
+        sparse
+            ? MatrixCsr.of(MatrixBenchmark.create(m, s, 1, true, SPARSITY))
+            : MatrixFlatArray.of(MatrixBenchmark.create(m, s, 1));
+    Matrix b = MatrixFlatArray.of(MatrixBenchmark.create(s, n, 2));
+
+    Choice best = null;
+    long bestNanos = Long.MAX_VALUE;
+    for (Choice candidate : candidates(sparse)) {
+      long nanos = time(candidate, a, b);
+      if (nanos < bestNanos) {
+        best = candidate;
+        bestNanos = nanos;
+      }
+    }
+    choices.put(key(size, aspect, sparse), best);
+    return best;
+  }
+
+  private List<Choice> candidates(boolean sparse) {
+    List<Choice> candidates = new ArrayList<>();
+    candidates.add(new Choice(Candidate.NAIVE));
+    for (int tileSize : TILE_SIZES) {
+      candidates.add(new Choice(Candidate.BLOCKED, tileSize));
+    }
+    if (VectorMatrixMultiplier.isVectorized()) {
+      candidates.add(new Choice(Candidate.VECTORIZED));
+    }
+    candidates.add(new Choice(Candidate.PACKED));
+    candidates.add(new Choice(Candidate.FORK_JOIN));
+    if (sparse) {
+      candidates.add(new Choice(Candidate.SPARSE));
+    }
+    return candidates;
+  }
+
+  private long time(Choice choice, Matrix a, Matrix b) throws Exception {
+    for (int run = 0; run < WARMUP_RUNS; run++) {
+      multiply(choice, a, b);
+    }
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < TIMED_RUNS; run++) {
+      long start = System.nanoTime();
+      multiply(choice, a, b);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  Matrix multiply(Choice choice, Matrix a, Matrix b) throws Exception {
+    if (choice.getCandidate() == Candidate.SPARSE
+        && (a instanceof SparseMatrix || b instanceof SparseMatrix)) {
+      return SparseMultiplier.multiply(a, b);
+    }
+    Matrix denseA = a instanceof SparseMatrix ? MatrixFlatArray.of(a) : a;
+    Matrix denseB = b instanceof SparseMatrix ? MatrixFlatArray.of(b) : b;
+    switch (choice.getCandidate()) {
+      case NAIVE:
+        return MatrixMultiplier.multiply(denseA, denseB);
+      case BLOCKED:
+        return context.multiply(
+            denseA,
+            denseB,
+            MatrixBlockMultiplier.kernel(choice.getTileSize()),
+            MultiplyStrategy.BLOCKED.name());
+      case PACKED:
+        return context.multiply(
+            denseA, denseB, PackedPanelMultiplier::multiplyRows, MultiplyStrategy.PACKED.name());
+      case FORK_JOIN:
+        return MatrixMultiplier.multiplyForkJoin(denseA, denseB);
+      case VECTORIZED:
+      case SPARSE:
+      default:
+        return context.multiply(
+            denseA, denseB, VectorMatrixMultiplier.kernel(), VectorMatrixMultiplier.engineName());
+    }
+  }
+
+  /** Reads choices saved by {@link #save}, returning false if there is no usable file. */
+  public boolean load(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return false;
+    }
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    String processors = String.valueOf(Runtime.getRuntime().availableProcessors());
+    if (!processors.equals(properties.getProperty(PROCESSORS_KEY))) {
+      return false;
+    }
+    for (String key : properties.stringPropertyNames()) {
+      if (!key.equals(PROCESSORS_KEY)) {
+        choices.put(key, Choice.parse(properties.getProperty(key)));
+      }
+    }
+    return true;
+  }
+
+  public void save(Path file) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty(
+        PROCESSORS_KEY, String.valueOf(Runtime.getRuntime().availableProcessors()));
+    for (Map.Entry<String, Choice> entry : choices.entrySet()) {
+      properties.setProperty(entry.getKey(), entry.getValue().toString());
+    }
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      properties.store(writer, "Matrix multiply engines tuned by MatrixAutotuner");
+    }
+  }
+
+  /** The tuned choices by group, e.g. {@code large.tall.dense=BLOCKED:32}. */
+  public Map<String, Choice> getChoices() {
+    return new TreeMap<>(choices);
+  }
+
+  private static String key(Matrix a, Matrix b) {
+    int m = a.getNumRows();
+    int k = a.getNumColumns();
+    int n = b.getNumColumns();
+    boolean sparse = a instanceof SparseMatrix || b instanceof SparseMatrix;
+    return key(SizeClass.of(m, k, n), Aspect.of(m, n), sparse);
+  }
+
+  static String key(SizeClass size, Aspect aspect, boolean sparse) {
+    return (size + "." + aspect + "." + (sparse ? "sparse" : "dense")).toLowerCase(Locale.ROOT);
+  }
+
+  private static Choice defaultChoice(String key) {
+    if (key.endsWith(".sparse")) {
+      return new Choice(Candidate.SPARSE);
+    }
+    return VectorMatrixMultiplier.isVectorized()
+        ? new Choice(Candidate.VECTORIZED)
+        : new Choice(Candidate.BLOCKED);
+  }
+
+  /** Tunes this machine and saves the result to args[0], or to the default tuning file. */
+  public static void main(String[] args) throws Exception {
+    Path file = args.length > 0 ? Paths.get(args[0]) : defaultTuningFile();
+    MatrixAutotuner tuner = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    tuner.tune();
+    tuner.save(file);
+    for (Map.Entry<String, Choice> entry : tuner.getChoices().entrySet()) {
+      System.out.println(entry.getKey() + " = " + entry.getValue());
+    }
+    System.out.println("Saved to " + file);
+  }
+}
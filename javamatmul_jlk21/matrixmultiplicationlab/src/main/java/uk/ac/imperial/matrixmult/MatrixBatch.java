@@ -0,0 +1,78 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * A batch of equally sized matrices stored back to back in one array. Matrix i is row-major and
+ * starts at {@code i * getStride()}.
+ */
+public class MatrixBatch {
+  private final double[] data;
+  private final int count;
+  private final int nRows;
+  private final int nCols;
+
+  public MatrixBatch(int count, int nRows, int nCols) {
+    this(new double[checkedSize(count, nRows, nCols)], count, nRows, nCols);
+  }
+
+  public MatrixBatch(double[] data, int count, int nRows, int nCols) {
+    if (data.length != checkedSize(count, nRows, nCols)) {
+      throw new IllegalArgumentException("Data does not match the batch dimensions");
+    }
+    this.data = data;
+    this.count = count;
+    this.nRows = nRows;
+    this.nCols = nCols;
+  }
+
+  private static int checkedSize(int count, int nRows, int nCols) {
+    if (count <= 0 || nRows <= 0 || nCols <= 0) {
+      throw new IllegalArgumentException("Batch must hold at least one non-empty matrix");
+    }
+    return Math.multiplyExact(count, Math.multiplyExact(nRows, nCols));
+  }
+
+  /** The backing array, shared with this batch. */
+  public double[] getData() {
+    return data;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public int getNumRows() {
+    return nRows;
+  }
+
+  public int getNumColumns() {
+    return nCols;
+  }
+
+  public int getStride() {
+    return nRows * nCols;
+  }
+
+  /** Returns a copy of matrix i. */
+  public MatrixFlatArray getMatrix(int i) {
+    checkIndex(i);
+    double[] values = new double[getStride()];
+    System.arraycopy(data, i * getStride(), values, 0, values.length);
+    return new MatrixFlatArray(nRows, nCols, values);
+  }
+
+  public void setMatrix(int i, Matrix m) {
+    checkIndex(i);
+    if (m.getNumRows() != nRows || m.getNumColumns() != nCols) {
+      throw new IllegalArgumentException("Matrix does not match the batch dimensions");
+    }
+    for (int row = 0; row < nRows; row++) {
+      System.arraycopy(m.getRow(row), 0, data, i * getStride() + row * nCols, nCols);
+    }
+  }
+
+  private void checkIndex(int i) {
+    if (i < 0 || i >= count) {
+      throw new IndexOutOfBoundsException("Matrix " + i + " of " + count);
+    }
+  }
+}
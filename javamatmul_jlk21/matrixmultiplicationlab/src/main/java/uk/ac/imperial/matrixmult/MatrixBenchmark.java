@@ -32,10 +32,25 @@
 package uk.ac.imperial.matrixmult;
 
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 /**
  * Methods annotated with @Benchmark will be benchmarked by JMH.
@@ -44,29 +59,286 @@ import org.openjdk.jmh.infra.Blackhole;
  * "target" folder.
  *
  * <p>To run benchmarks: java -jar target/benchmarks.jar -f 1 -to 60s -foe true -tu ns Run the jar
- * with '-h' for more details about the command line flags
+ * with '-h' for more details about the command line flags. Add "-rf json -rff results.json" to
+ * keep the results, or run this class's main method, which always writes JSON.
+ *
+ * <p>The full parameter matrix is large; narrow it with -p, e.g. "-p size=256 -p engine=BLOCKED".
  */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
 public class MatrixBenchmark {
 
+  public static final String DEFAULT_RESULT_FILE = "target/jmh-result.json";
+
+  public enum Shape {
+    SQUARE(1, 1, 1),
+    TALL(2, 1, 0.5),
+    WIDE(0.5, 1, 2);
+
+    private final double rowsScale;
+    private final double innerScale;
+    private final double colsScale;
+
+    Shape(double rowsScale, double innerScale, double colsScale) {
+      this.rowsScale = rowsScale;
+      this.innerScale = innerScale;
+      this.colsScale = colsScale;
+    }
+  }
+
+  public enum Storage {
+    NESTED,
+    FLAT,
+    CSR,
+    CSC;
+
+    Matrix convert(Matrix m) {
+      switch (this) {
+        case FLAT:
+          return MatrixFlatArray.of(m);
+        case CSR:
+          return MatrixCsr.of(m);
+        case CSC:
+          return MatrixCsc.of(m);
+        case NESTED:
+        default:
+          return new MatrixArray(toRows(m));
+      }
+    }
+  }
+
+  /** Dense storage with every engine. */
+  @State(Scope.Benchmark)
+  public static class Operands {
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"SQUARE", "TALL", "WIDE"})
+    public Shape shape;
+
+    @Param({"1.0", "0.01"})
+    public double density;
+
+    @Param({"NESTED", "FLAT"})
+    public Storage storage;
+
+    @Param({"CELL", "BLOCKED", "VECTORIZED", "PACKED", "FORK_JOIN", "STRASSEN", "AUTO"})
+    public MultiplyStrategy engine;
+
+    Matrix a;
+    Matrix b;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      a = operand(size, shape, density, storage, true);
+      b = operand(size, shape, density, storage, false);
+    }
+  }
+
+  /** Sparse storage, multiplied by {@link SparseMultiplier} in the sparse benchmark. */
+  @State(Scope.Benchmark)
+  public static class SparseStorage {
+    @Param({"64", "256", "1024"})
+    public int size;
+
+    @Param({"SQUARE", "TALL", "WIDE"})
+    public Shape shape;
+
+    @Param({"1.0", "0.01"})
+    public double density;
+
+    @Param({"CSR", "CSC"})
+    public Storage storage;
+
+    Matrix a;
+    Matrix b;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      a = operand(size, shape, density, storage, true);
+      b = operand(size, shape, density, storage, false);
+    }
+  }
+
+  /**
+   * Sparse storage with the dense engines. CELL is left out: {@link MatrixMultiplier#multiply}
+   * hands sparse operands to {@link SparseMultiplier}, which the sparse benchmark measures.
+   */
+  @State(Scope.Benchmark)
+  public static class SparseOperands extends SparseStorage {
+    @Param({"BLOCKED", "VECTORIZED", "PACKED", "FORK_JOIN", "STRASSEN", "AUTO"})
+    public MultiplyStrategy engine;
+  }
+
+  /** The left operand if left is set, otherwise the right one. */
+  static Matrix operand(int size, Shape shape, double density, Storage storage, boolean left) {
+    int rows = Math.max(1, (int) (size * shape.rowsScale));
+    int inner = Math.max(1, (int) (size * shape.innerScale));
+    int cols = Math.max(1, (int) (size * shape.colsScale));
+    boolean sparse = density < 1.0;
+    int sparsity = (int) Math.round(1.0 / density);
+    Matrix m =
+        left
+            ? create(rows, inner, 123456789, sparse, sparsity)
+            : create(inner, cols, 987654321, sparse, sparsity);
+    return storage.convert(m);
+  }
+
+  /** The dense product from the original lab handout, for comparison with earlier results. */
+  @State(Scope.Benchmark)
+  public static class LabDenseOperands {
+    @Param({"CELL", "BLOCKED", "VECTORIZED", "PACKED", "FORK_JOIN", "STRASSEN", "AUTO"})
+    public MultiplyStrategy engine;
+
+    Matrix a;
+    Matrix b;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      a = create(953, 1492, 123456789);
+      b = create(1492, 833, 987654321);
+    }
+  }
+
+  /**
+   * The sparse product from the original lab handout. Its operands are stored as CSR, so CELL is
+   * left out for the same reason as in {@link SparseOperands}.
+   */
+  @State(Scope.Benchmark)
+  public static class LabSparseOperands {
+    @Param({"BLOCKED", "VECTORIZED", "PACKED", "FORK_JOIN", "STRASSEN", "AUTO"})
+    public MultiplyStrategy engine;
+
+    Matrix a;
+    Matrix b;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      a = create(1150, 1190, 523452365, true, 100);
+      b = create(1190, 1000, 472676354, true, 100);
+    }
+  }
+
+  /** Many small independent products, as in a batched workload. */
+  @State(Scope.Benchmark)
+  public static class BatchOperands {
+    @Param({"16", "64"})
+    public int size;
+
+    @Param({"1000"})
+    public int count;
+
+    MatrixBatch a;
+    MatrixBatch b;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      a = new MatrixBatch(count, size, size);
+      b = new MatrixBatch(count, size, size);
+      for (int i = 0; i < count; i++) {
+        a.setMatrix(i, create(size, size, 123456789 + i));
+        b.setMatrix(i, create(size, size, 987654321 + i));
+      }
+    }
+  }
+
+  /**
+   * The same operands as dense and as CSR matrices, to find the density below which the sparse
+   * kernel wins. {@link MatrixBuilder#SPARSE_DENSITY_THRESHOLD} comes from these results.
+   */
+  @State(Scope.Benchmark)
+  public static class CrossoverOperands {
+    @Param({"512"})
+    public int size;
+
+    @Param({"0.01", "0.05", "0.1", "0.2", "0.3", "0.5"})
+    public double density;
+
+    Matrix denseA;
+    Matrix denseB;
+    Matrix sparseA;
+    Matrix sparseB;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      int sparsity = (int) Math.round(1.0 / density);
+      Matrix a = create(size, size, 123456789, true, sparsity);
+      Matrix b = create(size, size, 987654321, true, sparsity);
+      denseA = MatrixFlatArray.of(a);
+      denseB = MatrixFlatArray.of(b);
+      sparseA = MatrixCsr.of(a);
+      sparseB = MatrixCsr.of(b);
+    }
+  }
+
+  @Benchmark
+  public void multiply(Operands operands, Blackhole bh) throws Exception {
+    bh.consume(operands.engine.multiply(operands.a, operands.b));
+  }
+
   @Benchmark
-  @BenchmarkMode(Mode.AverageTime)
-  public void testMethod(Blackhole bh) throws Exception {
+  public void multiplySparseStorage(SparseOperands operands, Blackhole bh) throws Exception {
+    bh.consume(operands.engine.multiply(operands.a, operands.b));
+  }
 
-    // DENSE MATRIX BENCHMARK
+  @Benchmark
+  public void sparse(SparseStorage operands, Blackhole bh) {
+    bh.consume(SparseMultiplier.multiply(operands.a, operands.b));
+  }
 
-    Matrix da = create(953, 1492, 123456789);
-    Matrix db = create(1492, 833, 987654321);
+  @Benchmark
+  public void labDense(LabDenseOperands operands, Blackhole bh) throws Exception {
+    bh.consume(operands.engine.multiply(operands.a, operands.b));
+  }
 
-    Matrix dres = MatrixMultiplier.multiply(da, db);
+  @Benchmark
+  public void labSparse(LabSparseOperands operands, Blackhole bh) throws Exception {
+    bh.consume(operands.engine.multiply(operands.a, operands.b));
+  }
 
-    // SPARSE MATRIX CHECK
+  @Benchmark
+  public void crossoverDense(CrossoverOperands operands, Blackhole bh) throws Exception {
+    bh.consume(MatrixMultiplier.multiplyPacked(operands.denseA, operands.denseB));
+  }
 
-    Matrix sa = create(1150, 1190, 523452365, true, 100);
-    Matrix sb = create(1190, 1000, 472676354, true, 100);
+  @Benchmark
+  public void crossoverSparse(CrossoverOperands operands, Blackhole bh) {
+    bh.consume(SparseMultiplier.multiply(operands.sparseA, operands.sparseB));
+  }
 
-    Matrix sres = MatrixMultiplier.multiply(da, db);
+  @Benchmark
+  public void batch(BatchOperands operands, Blackhole bh) throws Exception {
+    bh.consume(MatrixMultiplier.multiplyBatch(operands.a, operands.b));
+  }
 
-    // bh.consume(z);
+  /**
+   * Runs the suite and writes the results as JSON, to {@value #DEFAULT_RESULT_FILE} unless -rff
+   * names another file. Accepts the same command line flags as the benchmarks jar.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    if (commandLine.getIncludes().isEmpty()) {
+      builder.include(MatrixBenchmark.class.getSimpleName());
+    }
+    Options options =
+        builder
+            .resultFormat(ResultFormatType.JSON)
+            .result(commandLine.getResult().orElse(DEFAULT_RESULT_FILE))
+            .parent(commandLine)
+            .build();
+    new Runner(options).run();
+  }
+
+  private static double[][] toRows(Matrix m) {
+    double[][] rows = new double[m.getNumRows()][];
+    for (int row = 0; row < rows.length; row++) {
+      rows[row] = m.getRow(row);
+    }
+    return rows;
   }
 
   public static Matrix create(int nRows, int nCols, long seed) {
@@ -98,7 +370,7 @@ public class MatrixBenchmark {
         matrix.set(x, y, value);
       }
 
-      return matrix;
+      return MatrixBuilder.compact(matrix);
     }
   }
 }
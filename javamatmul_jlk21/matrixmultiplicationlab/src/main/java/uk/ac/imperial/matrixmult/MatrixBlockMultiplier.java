@@ -0,0 +1,86 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * Computes a band of consecutive result rows, walking the band in square tiles so that the
+ * touched parts of {@code a}, {@code b} and the result stay in cache. Within a tile the loops run
+ * in i-k-j order, so the innermost loop streams along rows of {@code b} and the result.
+ */
+public class MatrixBlockMultiplier implements Runnable {
+  public static final int TILE_SIZE = 64;
+
+  private final MatrixFlatArray a;
+  private final MatrixFlatArray b;
+  private final MatrixFlatArray result;
+  private final RowBandKernel kernel;
+  private final int firstRow;
+  private final int lastRow;
+
+  public MatrixBlockMultiplier(
+      MatrixFlatArray a, MatrixFlatArray b, MatrixFlatArray result, int firstRow, int lastRow) {
+    this(a, b, result, MatrixBlockMultiplier::multiplyRows, firstRow, lastRow);
+  }
+
+  MatrixBlockMultiplier(
+      MatrixFlatArray a,
+      MatrixFlatArray b,
+      MatrixFlatArray result,
+      RowBandKernel kernel,
+      int firstRow,
+      int lastRow) {
+    this.a = a;
+    this.b = b;
+    this.result = result;
+    this.kernel = kernel;
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+  }
+
+  @Override
+  public void run() {
+    kernel.multiplyRows(
+        a.data(), b.data(), result.data(), a.getNumColumns(), b.getNumColumns(), firstRow, lastRow);
+  }
+
+  /** The scalar tiled kernel; see {@link RowBandKernel} for the contract. */
+  static void multiplyRows(
+      double[] a, double[] b, double[] c, int inner, int cols, int firstRow, int lastRow) {
+    multiplyRows(a, b, c, inner, cols, firstRow, lastRow, TILE_SIZE);
+  }
+
+  /** The scalar kernel with tiles of the given size instead of {@link #TILE_SIZE}. */
+  static RowBandKernel kernel(int tileSize) {
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+    }
+    return (a, b, c, inner, cols, firstRow, lastRow) ->
+        multiplyRows(a, b, c, inner, cols, firstRow, lastRow, tileSize);
+  }
+
+  private static void multiplyRows(
+      double[] a,
+      double[] b,
+      double[] c,
+      int inner,
+      int cols,
+      int firstRow,
+      int lastRow,
+      int tileSize) {
+    for (int kk = 0; kk < inner; kk += tileSize) {
+      int kEnd = Math.min(kk + tileSize, inner);
+      for (int jj = 0; jj < cols; jj += tileSize) {
+        int jEnd = Math.min(jj + tileSize, cols);
+        for (int i = firstRow; i < lastRow; i++) {
+          int aRow = i * inner;
+          int cRow = i * cols;
+          for (int k = kk; k < kEnd; k++) {
+            double aik = a[aRow + k];
+            int bRow = k * cols;
+            for (int j = jj; j < jEnd; j++) {
+              c[cRow + j] += aik * b[bRow + j];
+            }
+          }
+        }
+      }
+    }
+  }
+}
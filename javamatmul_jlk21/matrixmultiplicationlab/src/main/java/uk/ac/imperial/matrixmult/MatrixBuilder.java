@@ -3,6 +3,12 @@ package uk.ac.imperial.matrixmult;
 
 public class MatrixBuilder {
 
+  // Measured with MatrixBenchmark.crossover* (512 x 512, one core), Gustavson CSR * CSR against
+  // the packed dense kernel: 0.45 vs 21 ms at density 0.01, 11.9 vs 19.9 ms at 0.05, 21.5 vs
+  // 20.2 ms at 0.1 and 37.6 vs 20.1 ms at 0.3. The dense kernel runs a band per core and the
+  // sparse one does not, so the crossover falls below 0.1 on more cores; 0.05 leaves a margin
+  public static final double SPARSE_DENSITY_THRESHOLD = 0.05;
+
   public static Matrix build(double[][] source) {
     return new MatrixArray(source);
   }
@@ -10,4 +16,54 @@ public class MatrixBuilder {
   public static Matrix build(int nRows, int nCols) {
     return new MatrixArray(nRows, nCols);
   }
+
+  public static Matrix build(double[][] source, MatrixLayout layout) {
+    switch (layout) {
+      case FLAT:
+        return new MatrixFlatArray(source);
+      case NESTED:
+      default:
+        return build(source);
+    }
+  }
+
+  public static Matrix build(int nRows, int nCols, MatrixLayout layout) {
+    switch (layout) {
+      case FLAT:
+        return new MatrixFlatArray(nRows, nCols);
+      case NESTED:
+      default:
+        return build(nRows, nCols);
+    }
+  }
+
+  /** Builds from source, choosing CSR storage if source is sparse enough. */
+  public static Matrix buildCompact(double[][] source) {
+    return compact(build(source));
+  }
+
+  /** Returns m in CSR format if its density is below the threshold, otherwise m unchanged. */
+  public static Matrix compact(Matrix m) {
+    if (m instanceof SparseMatrix) {
+      return m;
+    }
+    return density(m) < SPARSE_DENSITY_THRESHOLD ? MatrixCsr.of(m) : m;
+  }
+
+  public static double density(Matrix m) {
+    if (m instanceof SparseMatrix) {
+      return ((SparseMatrix) m).getDensity();
+    }
+    int rows = m.getNumRows();
+    int cols = m.getNumColumns();
+    long nonZeros = 0;
+    for (int row = 0; row < rows; row++) {
+      for (double value : m.getRow(row)) {
+        if (value != 0.0) {
+          nonZeros++;
+        }
+      }
+    }
+    return (double) nonZeros / ((double) rows * cols);
+  }
 }
@@ -0,0 +1,123 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A product A0 * A1 * ... * An-1 with the multiplication order chosen to minimise the number of
+ * multiply-adds, using the classic O(n^3) dynamic programme over the matrix dimensions. Executing
+ * the plan writes each intermediate product through {@link GemmMultiplier} into a buffer recycled
+ * from intermediates that are no longer needed.
+ */
+public class MatrixChain {
+  private final List<Matrix> matrices;
+  private final int[] dims;
+  private final long[][] cost;
+  private final int[][] split;
+
+  private MatrixChain(List<Matrix> matrices) {
+    this.matrices = new ArrayList<>(matrices);
+    int n = matrices.size();
+    dims = new int[n + 1];
+    dims[0] = matrices.get(0).getNumRows();
+    for (int i = 0; i < n; i++) {
+      if (matrices.get(i).getNumRows() != dims[i]) {
+        throw new IllegalArgumentException("Matrix dimensions do not match at position " + i);
+      }
+      dims[i + 1] = matrices.get(i).getNumColumns();
+    }
+
+    // cost[i][j] is the cheapest way to compute Ai..Aj, and split[i][j] the k of its last
+    // multiplication (Ai..Ak) * (Ak+1..Aj)
+    cost = new long[n][n];
+    split = new int[n][n];
+    for (int length = 2; length <= n; length++) {
+      for (int i = 0; i + length - 1 < n; i++) {
+        int j = i + length - 1;
+        cost[i][j] = Long.MAX_VALUE;
+        for (int k = i; k < j; k++) {
+          long candidate =
+              cost[i][k] + cost[k + 1][j] + (long) dims[i] * dims[k + 1] * dims[j + 1];
+          if (candidate < cost[i][j]) {
+            cost[i][j] = candidate;
+            split[i][j] = k;
+          }
+        }
+      }
+    }
+  }
+
+  public static MatrixChain plan(List<? extends Matrix> matrices) {
+    if (matrices.isEmpty()) {
+      throw new IllegalArgumentException("A chain needs at least one matrix");
+    }
+    return new MatrixChain(new ArrayList<>(matrices));
+  }
+
+  /** The number of scalar multiply-adds the chosen order needs. */
+  public long getCost() {
+    return cost[0][matrices.size() - 1];
+  }
+
+  /** The chosen order, e.g. "((A0 A1) A2)". */
+  public String getParenthesization() {
+    return parenthesize(0, matrices.size() - 1);
+  }
+
+  private String parenthesize(int i, int j) {
+    if (i == j) {
+      return "A" + i;
+    }
+    return "(" + parenthesize(i, split[i][j]) + " " + parenthesize(split[i][j] + 1, j) + ")";
+  }
+
+  public Matrix multiply() throws Exception {
+    return multiply(MatrixMultiplierContext.shared());
+  }
+
+  public Matrix multiply(MatrixMultiplierContext context) throws Exception {
+    return new Execution(context).product(0, matrices.size() - 1);
+  }
+
+  private class Execution {
+    private final MatrixMultiplierContext context;
+    // Released intermediate buffers by length; any shape with the same number of cells fits
+    private final Map<Integer, Deque<double[]>> free = new HashMap<>();
+
+    Execution(MatrixMultiplierContext context) {
+      this.context = context;
+    }
+
+    Matrix product(int i, int j) throws Exception {
+      if (i == j) {
+        return matrices.get(i);
+      }
+      Matrix left = product(i, split[i][j]);
+      Matrix right = product(split[i][j] + 1, j);
+      int rows = dims[i];
+      int cols = dims[j + 1];
+      MatrixFlatArray result = new MatrixFlatArray(rows, cols, take(rows * cols));
+      GemmMultiplier.gemm(false, false, 1.0, left, right, 0.0, result, context);
+      release(left, i, split[i][j]);
+      release(right, split[i][j] + 1, j);
+      return result;
+    }
+
+    private double[] take(int length) {
+      Deque<double[]> buffers = free.get(length);
+      return buffers == null || buffers.isEmpty() ? new double[length] : buffers.pop();
+    }
+
+    private void release(Matrix m, int i, int j) {
+      // Only intermediates are ours to recycle, never the caller's inputs
+      if (i != j) {
+        free.computeIfAbsent(m.getNumRows() * m.getNumColumns(), length -> new ArrayDeque<>())
+            .push(((MatrixFlatArray) m).data());
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/** A sparse matrix in compressed sparse column (CSC) format. */
+public class MatrixCsc implements SparseMatrix {
+  private final CompressedSparseArrays columns;
+
+  public MatrixCsc(int nRows, int nCols) {
+    this(new CompressedSparseArrays(nCols, nRows));
+  }
+
+  MatrixCsc(CompressedSparseArrays columns) {
+    this.columns = columns;
+  }
+
+  public static MatrixCsc of(Matrix m) {
+    if (m instanceof SparseMatrix) {
+      return ((SparseMatrix) m).toCsc();
+    }
+    return new MatrixCsc(
+        CompressedSparseArrays.compress(m.getNumColumns(), m.getNumRows(), m::getColumnInto));
+  }
+
+  CompressedSparseArrays storage() {
+    return columns;
+  }
+
+  @Override
+  public double get(int row, int column) {
+    return columns.get(column, row);
+  }
+
+  @Override
+  public void set(int row, int column, double value) {
+    columns.set(column, row, value);
+  }
+
+  @Override
+  public int getNumRows() {
+    return columns.minorSize;
+  }
+
+  @Override
+  public int getNumColumns() {
+    return columns.majorSize;
+  }
+
+  @Override
+  public void getColumnInto(int column, double[] destination) {
+    if (column < 0 || column >= columns.majorSize) {
+      throw new IndexOutOfBoundsException("Column " + column);
+    }
+    Arrays.fill(destination, 0, columns.minorSize, 0.0);
+    for (int i = columns.pointers[column]; i < columns.pointers[column + 1]; i++) {
+      destination[columns.indices[i]] = columns.values[i];
+    }
+  }
+
+  @Override
+  public int getNumNonZeros() {
+    return columns.nonZeros();
+  }
+
+  @Override
+  public MatrixCsr toCsr() {
+    return new MatrixCsr(columns.transpose());
+  }
+
+  @Override
+  public MatrixCsc toCsc() {
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return "MatrixCsc[" + getNumRows() + "x" + getNumColumns() + ", nnz=" + getNumNonZeros() + "]";
+  }
+}
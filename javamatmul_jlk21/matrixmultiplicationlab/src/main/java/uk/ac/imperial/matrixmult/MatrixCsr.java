@@ -0,0 +1,82 @@
+package uk.ac.imperial.matrixmult;
+
+/** A sparse matrix in compressed sparse row (CSR) format. */
+public class MatrixCsr implements SparseMatrix {
+  private final CompressedSparseArrays rows;
+
+  public MatrixCsr(int nRows, int nCols) {
+    this(new CompressedSparseArrays(nRows, nCols));
+  }
+
+  MatrixCsr(CompressedSparseArrays rows) {
+    this.rows = rows;
+  }
+
+  public static MatrixCsr of(Matrix m) {
+    if (m instanceof SparseMatrix) {
+      return ((SparseMatrix) m).toCsr();
+    }
+    return new MatrixCsr(
+        CompressedSparseArrays.compress(
+            m.getNumRows(),
+            m.getNumColumns(),
+            (row, destination) ->
+                System.arraycopy(m.getRow(row), 0, destination, 0, destination.length)));
+  }
+
+  CompressedSparseArrays storage() {
+    return rows;
+  }
+
+  @Override
+  public double get(int row, int column) {
+    return rows.get(row, column);
+  }
+
+  @Override
+  public void set(int row, int column, double value) {
+    rows.set(row, column, value);
+  }
+
+  @Override
+  public int getNumRows() {
+    return rows.majorSize;
+  }
+
+  @Override
+  public int getNumColumns() {
+    return rows.minorSize;
+  }
+
+  @Override
+  public double[] getRow(int row) {
+    if (row < 0 || row >= rows.majorSize) {
+      throw new IndexOutOfBoundsException("Row " + row);
+    }
+    double[] values = new double[rows.minorSize];
+    for (int i = rows.pointers[row]; i < rows.pointers[row + 1]; i++) {
+      values[rows.indices[i]] = rows.values[i];
+    }
+    return values;
+  }
+
+  @Override
+  public int getNumNonZeros() {
+    return rows.nonZeros();
+  }
+
+  @Override
+  public MatrixCsr toCsr() {
+    return this;
+  }
+
+  @Override
+  public MatrixCsc toCsc() {
+    return new MatrixCsc(rows.transpose());
+  }
+
+  @Override
+  public String toString() {
+    return "MatrixCsr[" + getNumRows() + "x" + getNumColumns() + ", nnz=" + getNumNonZeros() + "]";
+  }
+}
@@ -0,0 +1,119 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/**
+ * A dense matrix stored row-major in a single contiguous array, so element (row, column) lives at
+ * {@code row * nCols + column}.
+ */
+public class MatrixFlatArray implements Matrix {
+  private final double[] matrix;
+  private final int nRows;
+  private final int nCols;
+
+  public MatrixFlatArray(double[][] source) {
+    if (source.length == 0 || source[0].length == 0) {
+      throw new IllegalArgumentException("Source must be non-empty");
+    }
+    nRows = source.length;
+    nCols = source[0].length;
+    matrix = new double[nRows * nCols];
+    for (int row = 0; row < nRows; row++) {
+      if (source[row].length != nCols) {
+        throw new IllegalArgumentException("Source rows must all have the same length");
+      }
+      System.arraycopy(source[row], 0, matrix, row * nCols, nCols);
+    }
+  }
+
+  public MatrixFlatArray(int nRows, int nCols) {
+    this(nRows, nCols, new double[checkedSize(nRows, nCols)]);
+  }
+
+  MatrixFlatArray(int nRows, int nCols, double[] matrix) {
+    if (matrix.length != checkedSize(nRows, nCols)) {
+      throw new IllegalArgumentException("Backing array does not match the matrix dimensions");
+    }
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.matrix = matrix;
+  }
+
+  private static int checkedSize(int nRows, int nCols) {
+    if (nRows <= 0 || nCols <= 0) {
+      throw new IllegalArgumentException("Matrix must have at least one row and one column");
+    }
+    return Math.multiplyExact(nRows, nCols);
+  }
+
+  /** Returns m itself if it is already flat, otherwise a flat copy of it. */
+  public static MatrixFlatArray of(Matrix m) {
+    if (m instanceof MatrixFlatArray) {
+      return (MatrixFlatArray) m;
+    }
+    int rows = m.getNumRows();
+    int cols = m.getNumColumns();
+    MatrixFlatArray copy = new MatrixFlatArray(rows, cols);
+    for (int row = 0; row < rows; row++) {
+      System.arraycopy(m.getRow(row), 0, copy.matrix, row * cols, cols);
+    }
+    return copy;
+  }
+
+  /** The backing array, shared with this matrix. Used by the multiply kernels. */
+  double[] data() {
+    return matrix;
+  }
+
+  private int index(int row, int column) {
+    if (row < 0 || row >= nRows || column < 0 || column >= nCols) {
+      throw new IndexOutOfBoundsException("(" + row + ", " + column + ")");
+    }
+    return row * nCols + column;
+  }
+
+  @Override
+  public double get(int row, int column) {
+    return matrix[index(row, column)];
+  }
+
+  @Override
+  public void set(int row, int column, double value) {
+    matrix[index(row, column)] = value;
+  }
+
+  @Override
+  public int getNumRows() {
+    return nRows;
+  }
+
+  @Override
+  public int getNumColumns() {
+    return nCols;
+  }
+
+  @Override
+  public double[] getRow(int row) {
+    int start = index(row, 0);
+    return Arrays.copyOfRange(matrix, start, start + nCols);
+  }
+
+  @Override
+  public void getColumnInto(int column, double[] destination) {
+    for (int row = 0, i = index(0, column); row < nRows; row++, i += nCols) {
+      destination[row] = matrix[i];
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int row = 0; row < nRows; row++) {
+      if (row > 0) {
+        sb.append(", ");
+      }
+      sb.append(Arrays.toString(getRow(row)));
+    }
+    return sb.append("]").toString();
+  }
+}
@@ -0,0 +1,131 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Adds the product of a block of a and a block of b into the matching block of c, splitting every
+ * dimension larger than the leaf size in half. The quadrants of c are independent and run in
+ * parallel; the two halves of the inner dimension both write to the same quadrants, so they run
+ * one after the other. Blocks no larger than the leaf size in any dimension are small enough to
+ * stay in cache, so they are multiplied with a plain i-k-j loop rather than a tiled one.
+ */
+public class MatrixForkJoinMultiplier extends RecursiveAction {
+  public static final int DEFAULT_LEAF_SIZE = 64;
+
+  private final double[] a;
+  private final double[] b;
+  private final double[] c;
+  private final int inner;
+  private final int cols;
+  private final int leafSize;
+  private final int rowStart;
+  private final int rowEnd;
+  private final int innerStart;
+  private final int innerEnd;
+  private final int colStart;
+  private final int colEnd;
+
+  public MatrixForkJoinMultiplier(
+      MatrixFlatArray a, MatrixFlatArray b, MatrixFlatArray result, int leafSize) {
+    this(
+        a.data(),
+        b.data(),
+        result.data(),
+        a.getNumColumns(),
+        b.getNumColumns(),
+        leafSize,
+        0,
+        a.getNumRows(),
+        0,
+        a.getNumColumns(),
+        0,
+        b.getNumColumns());
+    if (leafSize <= 0) {
+      throw new IllegalArgumentException("Leaf size must be positive");
+    }
+  }
+
+  private MatrixForkJoinMultiplier(
+      double[] a,
+      double[] b,
+      double[] c,
+      int inner,
+      int cols,
+      int leafSize,
+      int rowStart,
+      int rowEnd,
+      int innerStart,
+      int innerEnd,
+      int colStart,
+      int colEnd) {
+    this.a = a;
+    this.b = b;
+    this.c = c;
+    this.inner = inner;
+    this.cols = cols;
+    this.leafSize = leafSize;
+    this.rowStart = rowStart;
+    this.rowEnd = rowEnd;
+    this.innerStart = innerStart;
+    this.innerEnd = innerEnd;
+    this.colStart = colStart;
+    this.colEnd = colEnd;
+  }
+
+  @Override
+  protected void compute() {
+    int[] rowBounds = split(rowStart, rowEnd);
+    int[] innerBounds = split(innerStart, innerEnd);
+    int[] colBounds = split(colStart, colEnd);
+    if (rowBounds.length == 2 && innerBounds.length == 2 && colBounds.length == 2) {
+      multiplyLeaf();
+      return;
+    }
+    for (int k = 0; k + 1 < innerBounds.length; k++) {
+      List<MatrixForkJoinMultiplier> quadrants = new ArrayList<>();
+      for (int i = 0; i + 1 < rowBounds.length; i++) {
+        for (int j = 0; j + 1 < colBounds.length; j++) {
+          quadrants.add(
+              new MatrixForkJoinMultiplier(
+                  a,
+                  b,
+                  c,
+                  inner,
+                  cols,
+                  leafSize,
+                  rowBounds[i],
+                  rowBounds[i + 1],
+                  innerBounds[k],
+                  innerBounds[k + 1],
+                  colBounds[j],
+                  colBounds[j + 1]));
+        }
+      }
+      invokeAll(quadrants);
+    }
+  }
+
+  /** Halves [start, end) if it is longer than the leaf size. */
+  private int[] split(int start, int end) {
+    if (end - start <= leafSize) {
+      return new int[] {start, end};
+    }
+    return new int[] {start, start + (end - start) / 2, end};
+  }
+
+  private void multiplyLeaf() {
+    for (int i = rowStart; i < rowEnd; i++) {
+      int aRow = i * inner;
+      int cRow = i * cols;
+      for (int k = innerStart; k < innerEnd; k++) {
+        double aik = a[aRow + k];
+        int bRow = k * cols;
+        for (int j = colStart; j < colEnd; j++) {
+          c[cRow + j] += aik * b[bRow + j];
+        }
+      }
+    }
+  }
+}
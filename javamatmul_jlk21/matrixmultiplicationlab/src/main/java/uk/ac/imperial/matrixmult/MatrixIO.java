@@ -0,0 +1,250 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes matrices in a compact binary format. A file is a 32 byte header followed by
+ * the raw values; everything is little-endian.
+ *
+ * <pre>
+ * offset  size  field
+ *      0     4  magic "MTRX"
+ *      4     2  format version (1)
+ *      6     1  layout: 0 = row-major, 1 = column-major
+ *      7     1  data type: 0 = float64
+ *      8     4  number of rows
+ *     12     4  number of columns
+ *     16    16  reserved, zero
+ *     32        rows * columns values
+ * </pre>
+ *
+ * <p>The header size keeps the values 8-byte aligned, so a row-major file can be mapped straight
+ * into a {@link MatrixMapped} without copying.
+ */
+public class MatrixIO {
+  public static final int HEADER_BYTES = 32;
+
+  private static final int MAGIC = 0x5852544d; // "MTRX" read little-endian
+  private static final short VERSION = 1;
+  private static final int BUFFER_BYTES = 1 << 20;
+
+  public enum Layout {
+    ROW_MAJOR,
+    COLUMN_MAJOR
+  }
+
+  public enum DataType {
+    FLOAT64
+  }
+
+  public static final class Header {
+    public final Layout layout;
+    public final DataType dataType;
+    public final int rows;
+    public final int columns;
+
+    public Header(Layout layout, DataType dataType, int rows, int columns) {
+      this.layout = layout;
+      this.dataType = dataType;
+      this.rows = rows;
+      this.columns = columns;
+    }
+  }
+
+  public static void write(Matrix m, Path file) throws IOException {
+    write(m, file, Layout.ROW_MAJOR);
+  }
+
+  public static void write(Matrix m, Path file, Layout layout) throws IOException {
+    int rows = m.getNumRows();
+    int cols = m.getNumColumns();
+    try (FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      writeHeader(channel, new Header(layout, DataType.FLOAT64, rows, cols));
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      DoubleBuffer doubles = buffer.asDoubleBuffer();
+      boolean rowMajor = layout == Layout.ROW_MAJOR;
+      double[] line = new double[rowMajor ? cols : rows];
+      for (int i = 0; i < (rowMajor ? rows : cols); i++) {
+        if (rowMajor) {
+          line = m.getRow(i);
+        } else {
+          m.getColumnInto(i, line);
+        }
+        for (int offset = 0; offset < line.length; ) {
+          int count = Math.min(doubles.remaining(), line.length - offset);
+          doubles.put(line, offset, count);
+          offset += count;
+          if (!doubles.hasRemaining()) {
+            flush(channel, buffer, doubles);
+          }
+        }
+      }
+      flush(channel, buffer, doubles);
+    }
+  }
+
+  private static void flush(FileChannel channel, ByteBuffer buffer, DoubleBuffer doubles)
+      throws IOException {
+    buffer.limit(doubles.position() * Double.BYTES).position(0);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    doubles.clear();
+  }
+
+  /** Loads the whole file onto the heap. */
+  public static MatrixFlatArray read(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Header header = readHeader(channel);
+      long size = (long) header.rows * header.columns;
+      if (channel.size() < HEADER_BYTES + size * Double.BYTES) {
+        throw new IOException("Matrix file is truncated: " + file);
+      }
+      double[] values = new double[Math.toIntExact(size)];
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      int filled = 0;
+      while (filled < values.length) {
+        buffer
+            .clear()
+            .limit((int) Math.min(BUFFER_BYTES, (long) (values.length - filled) * Double.BYTES));
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer) < 0) {
+            throw new IOException("Matrix file is truncated: " + file);
+          }
+        }
+        buffer.flip();
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        int count = doubles.remaining();
+        doubles.get(values, filled, count);
+        filled += count;
+      }
+      if (header.layout == Layout.COLUMN_MAJOR) {
+        values = transpose(values, header.columns, header.rows);
+      }
+      return new MatrixFlatArray(header.rows, header.columns, values);
+    }
+  }
+
+  /**
+   * Maps a row-major file without copying it onto the heap. Writes through a writable mapping
+   * change the file.
+   */
+  public static MatrixMapped map(Path file, boolean writable) throws IOException {
+    FileChannel channel =
+        writable
+            ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      Header header = readHeader(channel);
+      if (header.layout != Layout.ROW_MAJOR) {
+        throw new IllegalArgumentException("Only row-major files can be mapped");
+      }
+      return new MatrixMapped(
+          channel,
+          HEADER_BYTES,
+          header.rows,
+          header.columns,
+          writable,
+          MatrixMapped.DEFAULT_CHUNK_DOUBLES);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** Creates a zero-filled row-major matrix file and maps it for writing. */
+  public static MatrixMapped createMapped(Path file, int rows, int columns) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      writeHeader(channel, new Header(Layout.ROW_MAJOR, DataType.FLOAT64, rows, columns));
+      return new MatrixMapped(
+          channel, HEADER_BYTES, rows, columns, true, MatrixMapped.DEFAULT_CHUNK_DOUBLES);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public static Header readHeader(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return readHeader(channel);
+    }
+  }
+
+  private static Header readHeader(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) {
+        throw new IOException("Not a matrix file: header is truncated");
+      }
+    }
+    channel.position(HEADER_BYTES);
+    header.flip();
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a matrix file: bad magic number");
+    }
+    short version = header.getShort();
+    if (version != VERSION) {
+      throw new IOException("Unsupported matrix file version " + version);
+    }
+    byte layout = header.get();
+    byte dataType = header.get();
+    if (layout < 0 || layout >= Layout.values().length) {
+      throw new IOException("Unknown layout " + layout);
+    }
+    if (dataType < 0 || dataType >= DataType.values().length) {
+      throw new IOException("Unknown data type " + dataType);
+    }
+    int rows = header.getInt();
+    int columns = header.getInt();
+    if (rows <= 0 || columns <= 0) {
+      throw new IOException("Bad matrix dimensions " + rows + "x" + columns);
+    }
+    return new Header(Layout.values()[layout], DataType.values()[dataType], rows, columns);
+  }
+
+  private static void writeHeader(FileChannel channel, Header header) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    buffer
+        .putInt(MAGIC)
+        .putShort(VERSION)
+        .put((byte) header.layout.ordinal())
+        .put((byte) header.dataType.ordinal())
+        .putInt(header.rows)
+        .putInt(header.columns);
+    buffer.clear();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, buffer.position());
+    }
+    channel.position(HEADER_BYTES);
+  }
+
+  /** Transposes a row-major rows x cols array. */
+  private static double[] transpose(double[] values, int rows, int cols) {
+    double[] transposed = new double[values.length];
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        transposed[col * rows + row] = values[row * cols + col];
+      }
+    }
+    return transposed;
+  }
+}
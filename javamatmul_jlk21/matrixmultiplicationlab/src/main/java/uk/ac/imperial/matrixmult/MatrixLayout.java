@@ -0,0 +1,8 @@
+package uk.ac.imperial.matrixmult;
+
+public enum MatrixLayout {
+  /** One array per row ({@link MatrixArray}). */
+  NESTED,
+  /** A single row-major array ({@link MatrixFlatArray}). */
+  FLAT
+}
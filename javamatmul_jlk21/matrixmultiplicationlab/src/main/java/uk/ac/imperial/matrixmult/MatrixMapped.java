@@ -0,0 +1,174 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A dense row-major matrix of little-endian doubles in a memory-mapped file, so it can be larger
+ * than the heap and is paged in and out by the operating system. A single mapping is limited to
+ * 2GB, so the file is mapped as a series of chunks.
+ */
+public class MatrixMapped implements Matrix, Closeable {
+  static final int DEFAULT_CHUNK_DOUBLES = 1 << 27;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer[] mappings;
+  private final DoubleBuffer[] chunks;
+  private final int chunkDoubles;
+  private final int nRows;
+  private final int nCols;
+
+  MatrixMapped(
+      FileChannel channel, long offset, int nRows, int nCols, boolean writable, int chunkDoubles)
+      throws IOException {
+    if (nRows <= 0 || nCols <= 0) {
+      throw new IllegalArgumentException("Matrix must have at least one row and one column");
+    }
+    this.channel = channel;
+    this.nRows = nRows;
+    this.nCols = nCols;
+    this.chunkDoubles = chunkDoubles;
+    long size = (long) nRows * nCols;
+    int numChunks = (int) ((size + chunkDoubles - 1) / chunkDoubles);
+    mappings = new MappedByteBuffer[numChunks];
+    chunks = new DoubleBuffer[numChunks];
+    FileChannel.MapMode mode =
+        writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+    for (int chunk = 0; chunk < numChunks; chunk++) {
+      long first = (long) chunk * chunkDoubles;
+      long length = Math.min(chunkDoubles, size - first);
+      mappings[chunk] = channel.map(mode, offset + first * Double.BYTES, length * Double.BYTES);
+      mappings[chunk].order(ByteOrder.LITTLE_ENDIAN);
+      chunks[chunk] = mappings[chunk].asDoubleBuffer();
+    }
+  }
+
+  /** Creates (or overwrites) a zero-filled nRows x nCols matrix in the given file. */
+  public static MatrixMapped create(Path file, int nRows, int nCols) throws IOException {
+    FileChannel channel =
+        FileChannel.open(
+            file,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      return new MatrixMapped(channel, 0, nRows, nCols, true, DEFAULT_CHUNK_DOUBLES);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /** Maps an existing file holding an nRows x nCols matrix with no header. */
+  public static MatrixMapped open(Path file, int nRows, int nCols, boolean writable)
+      throws IOException {
+    FileChannel channel =
+        writable
+            ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      return new MatrixMapped(channel, 0, nRows, nCols, writable, DEFAULT_CHUNK_DOUBLES);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private long index(int row, int column) {
+    if (row < 0 || row >= nRows || column < 0 || column >= nCols) {
+      throw new IndexOutOfBoundsException("(" + row + ", " + column + ")");
+    }
+    return (long) row * nCols + column;
+  }
+
+  @Override
+  public double get(int row, int column) {
+    long i = index(row, column);
+    return chunks[(int) (i / chunkDoubles)].get((int) (i % chunkDoubles));
+  }
+
+  @Override
+  public void set(int row, int column, double value) {
+    long i = index(row, column);
+    chunks[(int) (i / chunkDoubles)].put((int) (i % chunkDoubles), value);
+  }
+
+  @Override
+  public int getNumRows() {
+    return nRows;
+  }
+
+  @Override
+  public int getNumColumns() {
+    return nCols;
+  }
+
+  @Override
+  public double[] getRow(int row) {
+    double[] values = new double[nCols];
+    readBlock(row, 0, 1, nCols, values);
+    return values;
+  }
+
+  /** Copies a numRows x numCols block starting at (row, column) into destination, row-major. */
+  public void readBlock(int row, int column, int numRows, int numCols, double[] destination) {
+    index(row + numRows - 1, column + numCols - 1);
+    for (int r = 0; r < numRows; r++) {
+      long start = index(row + r, column);
+      transfer(start, destination, r * numCols, numCols, false);
+    }
+  }
+
+  /** Copies a row-major numRows x numCols block from source into the block at (row, column). */
+  public void writeBlock(int row, int column, int numRows, int numCols, double[] source) {
+    index(row + numRows - 1, column + numCols - 1);
+    for (int r = 0; r < numRows; r++) {
+      long start = index(row + r, column);
+      transfer(start, source, r * numCols, numCols, true);
+    }
+  }
+
+  private void transfer(long start, double[] array, int offset, int length, boolean write) {
+    while (length > 0) {
+      int chunk = (int) (start / chunkDoubles);
+      int position = (int) (start % chunkDoubles);
+      int count = Math.min(length, chunkDoubles - position);
+      if (write) {
+        chunks[chunk].put(position, array, offset, count);
+      } else {
+        chunks[chunk].get(position, array, offset, count);
+      }
+      start += count;
+      offset += count;
+      length -= count;
+    }
+  }
+
+  /** Writes any changes through to the file. */
+  public void force() {
+    for (MappedByteBuffer mapping : mappings) {
+      if (!mapping.isReadOnly()) {
+        mapping.force();
+      }
+    }
+  }
+
+  /** Flushes changes and closes the file. The mapping is released by the garbage collector. */
+  @Override
+  public void close() throws IOException {
+    force();
+    channel.close();
+  }
+
+  @Override
+  public String toString() {
+    return "MatrixMapped[" + nRows + "x" + nCols + "]";
+  }
+}
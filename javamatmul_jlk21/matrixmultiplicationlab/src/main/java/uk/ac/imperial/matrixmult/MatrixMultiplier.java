@@ -1,41 +1,217 @@
 package uk.ac.imperial.matrixmult;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class MatrixMultiplier {
 
+  /**
+   * Computes each cell of a * b as its own task on the shared context, or on the calling thread if
+   * the product is below the context's sequential threshold or the caller is one of its workers,
+   * which would otherwise wait on tasks queued behind it. Sparse operands go to {@link
+   * SparseMultiplier}.
+   */
   public static Matrix multiply(Matrix a, Matrix b) throws Exception {
     assert a != null;
     assert b != null;
     assert a.getNumColumns() == b.getNumRows();
+    if (a instanceof SparseMatrix || b instanceof SparseMatrix) {
+      return measure("SPARSE", a, b, () -> SparseMultiplier.multiply(a, b));
+    }
+    return measure(MultiplyStrategy.CELL.name(), a, b, () -> multiplyCells(a, b));
+  }
+
+  private static Matrix multiplyCells(Matrix a, Matrix b) throws Exception {
     int resultNumRows = a.getNumRows();
     int resultNumCols = b.getNumColumns();
     Matrix result = new MatrixArray(resultNumRows, resultNumCols);
-    ExecutorService executor = Executors.newFixedThreadPool(7);
+    MatrixMultiplierContext context = MatrixMultiplierContext.shared();
+    long multiplyAdds = (long) resultNumRows * a.getNumColumns() * resultNumCols;
+    if (multiplyAdds < context.getSequentialThreshold() || context.isWorkerThread()) {
+      for (int row = 0; row < resultNumRows; row++) {
+        for (int col = 0; col < resultNumCols; col++) {
+          new MatrixCellMultiplier(a, b, result, row, col).run();
+        }
+      }
+      return result;
+    }
+    Executor executor = context.executor();
+    CountDownLatch remaining = new CountDownLatch(resultNumRows * resultNumCols);
     for (int row = 0; row < resultNumRows; row++) {
       for (int col = 0; col < resultNumCols; col++) {
-        executor.execute(new MatrixCellMultiplier(a, b, result, row, col));
+        MatrixCellMultiplier cell = new MatrixCellMultiplier(a, b, result, row, col);
+        executor.execute(
+            () -> {
+              try {
+                cell.run();
+              } finally {
+                remaining.countDown();
+              }
+            });
       }
     }
-    executor.shutdown();
-    // The code below is taken from Oracle docs on ExecutorService
-    try {
-      // Wait a while for existing tasks to terminate
-      if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-        executor.shutdownNow(); // Cancel currently executing tasks
-        // Wait a while for tasks to respond to being cancelled
-        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-          System.err.println("Pool did not terminate");
-        }
-      }
-    } catch (InterruptedException ie) {
-      // (Re-)Cancel if current thread also interrupted
-      executor.shutdownNow();
-      // Preserve interrupt status
-      Thread.currentThread().interrupt();
+    remaining.await();
+    return result;
+  }
+
+  /** Runs product on the shared context, reporting it to the context's listeners. */
+  private static <T> T measure(String engine, Matrix a, Matrix b, Callable<T> product)
+      throws Exception {
+    return MatrixMultiplierContext.shared()
+        .measure(engine, a.getNumRows(), a.getNumColumns(), b.getNumColumns(), product);
+  }
+
+  public static Matrix multiply(Matrix a, Matrix b, MultiplyStrategy strategy) throws Exception {
+    return strategy.multiply(a, b);
+  }
+
+  /**
+   * Updates c in place to {@code alpha * op(a) * op(b) + beta * c}, where op transposes its
+   * argument if the matching flag is set. See {@link GemmMultiplier}, which also explains why c
+   * must be flat.
+   */
+  public static void gemm(
+      boolean transposeA,
+      boolean transposeB,
+      double alpha,
+      Matrix a,
+      Matrix b,
+      double beta,
+      MatrixFlatArray c)
+      throws Exception {
+    GemmMultiplier.gemm(
+        transposeA, transposeB, alpha, a, b, beta, c, MatrixMultiplierContext.shared());
+  }
+
+  /** SUMMA over the given {@link MatrixWorkerServer}s; see {@link DistributedMultiplier}. */
+  public static Matrix multiplyDistributed(
+      Matrix a, Matrix b, List<InetSocketAddress> workers) throws Exception {
+    return measure("DISTRIBUTED", a, b, () -> new DistributedMultiplier(workers).multiply(a, b));
+  }
+
+  /** A handle on a * b that patches the product as rows, columns or low-rank terms change. */
+  public static IncrementalProduct multiplyIncremental(Matrix a, Matrix b) throws Exception {
+    return new IncrementalProduct(a, b);
+  }
+
+  /** Multiplies the chain in the order that needs the fewest multiply-adds. */
+  public static Matrix multiplyChain(Matrix... matrices) throws Exception {
+    return MatrixChain.plan(Arrays.asList(matrices)).multiply();
+  }
+
+  /** Multiplies each as[i] by bs[i], each product on a single thread. */
+  public static List<Matrix> multiplyBatch(List<? extends Matrix> as, List<? extends Matrix> bs)
+      throws Exception {
+    return BatchMultiplier.multiply(as, bs, MatrixMultiplierContext.shared());
+  }
+
+  public static MatrixBatch multiplyBatch(MatrixBatch a, MatrixBatch b) throws Exception {
+    return BatchMultiplier.multiply(a, b, MatrixMultiplierContext.shared());
+  }
+
+  public static Matrix multiplyBlocked(Matrix a, Matrix b) throws Exception {
+    return MatrixMultiplierContext.shared()
+        .multiply(a, b, MatrixBlockMultiplier::multiplyRows, MultiplyStrategy.BLOCKED.name());
+  }
+
+  public static Matrix multiplyVectorized(Matrix a, Matrix b) throws Exception {
+    return MatrixMultiplierContext.shared()
+        .multiply(a, b, VectorMatrixMultiplier.kernel(), VectorMatrixMultiplier.engineName());
+  }
+
+  /** The packed-panel kernel of {@link PackedPanelMultiplier}, one band of rows per core. */
+  public static Matrix multiplyPacked(Matrix a, Matrix b) throws Exception {
+    return MatrixMultiplierContext.shared()
+        .multiply(a, b, PackedPanelMultiplier::multiplyRows, MultiplyStrategy.PACKED.name());
+  }
+
+  /** Runs the engine {@link MatrixAutotuner} found fastest for products like this one. */
+  public static Matrix multiplyTuned(Matrix a, Matrix b) throws Exception {
+    return MatrixAutotuner.shared().multiply(a, b);
+  }
+
+  public static Matrix multiplyForkJoin(Matrix a, Matrix b) {
+    return multiplyForkJoin(a, b, MatrixForkJoinMultiplier.DEFAULT_LEAF_SIZE);
+  }
+
+  public static Matrix multiplyForkJoin(Matrix a, Matrix b, int leafSize) {
+    assert a != null;
+    assert b != null;
+    assert a.getNumColumns() == b.getNumRows();
+    long start = System.nanoTime();
+    MatrixFlatArray result = new MatrixFlatArray(a.getNumRows(), b.getNumColumns());
+    MatrixForkJoinMultiplier task =
+        new MatrixForkJoinMultiplier(
+            MatrixFlatArray.of(a), MatrixFlatArray.of(b), result, leafSize);
+    long packed = System.nanoTime();
+    if (ForkJoinTask.inForkJoinPool()) {
+      // Already on a worker, possibly of the caller's own pool: split within that pool
+      task.invoke();
+    } else {
+      ForkJoinPool.commonPool().invoke(task);
+    }
+    MatrixMultiplierContext.shared()
+        .report(
+            MultiplyStrategy.FORK_JOIN.name(),
+            false,
+            a.getNumRows(),
+            a.getNumColumns(),
+            b.getNumColumns(),
+            packed - start,
+            System.nanoTime() - packed,
+            new long[0]);
+    return result;
+  }
+
+  public static Matrix multiplyStrassen(Matrix a, Matrix b) throws Exception {
+    return multiplyStrassen(a, b, StrassenMultiplier.DEFAULT_CUTOFF);
+  }
+
+  /**
+   * Uses Strassen-Winograd for square matrices larger than the cutoff and the blocked classical
+   * kernel for everything else. See {@link StrassenMultiplier} for the accuracy trade-off.
+   */
+  public static Matrix multiplyStrassen(Matrix a, Matrix b, int cutoff) throws Exception {
+    assert a != null;
+    assert b != null;
+    assert a.getNumColumns() == b.getNumRows();
+    int n = a.getNumRows();
+    boolean square = n == a.getNumColumns() && n == b.getNumColumns();
+    if (!square || n <= cutoff) {
+      return multiplyBlocked(a, b);
     }
+    double[] flatA = MatrixFlatArray.of(a).data();
+    double[] flatB = MatrixFlatArray.of(b).data();
+    StrassenMultiplier task = new StrassenMultiplier(flatA, flatB, n, cutoff);
+    return measure(
+        MultiplyStrategy.STRASSEN.name(),
+        a,
+        b,
+        () -> {
+          double[] product =
+              ForkJoinTask.inForkJoinPool()
+                  ? task.invoke()
+                  : ForkJoinPool.commonPool().invoke(task);
+          return new MatrixFlatArray(n, n, product);
+        });
+  }
+
+  /**
+   * Multiplies a and b into a new memory-mapped matrix in resultFile, streaming both through
+   * memory a tile at a time. Inputs would normally be {@link MatrixMapped} too. The result file
+   * is in the {@link MatrixIO} format, so it can be mapped again later.
+   */
+  public static MatrixMapped multiplyOutOfCore(Matrix a, Matrix b, Path resultFile)
+      throws Exception {
+    MatrixMapped result = MatrixIO.createMapped(resultFile, a.getNumRows(), b.getNumColumns());
+    OutOfCoreMultiplier.multiply(a, b, result, OutOfCoreMultiplier.DEFAULT_TILE_SIZE);
     return result;
   }
 
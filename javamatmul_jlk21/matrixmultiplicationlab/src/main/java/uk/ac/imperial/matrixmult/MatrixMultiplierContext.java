@@ -0,0 +1,308 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns a fixed pool of worker threads that any number of multiplications can share, so the
+ * threads are created once rather than per call. Products with fewer multiply-adds than the
+ * sequential threshold are computed as a single task without splitting, and synchronous calls
+ * run them on the caller's thread.
+ *
+ * <p>Listeners added to a context receive {@link MultiplyMetrics} for each product run on it,
+ * including each gemm, each pair of a batch and each step of a chain. The static {@link
+ * MatrixMultiplier} engines report to the {@link #shared()} context. {@link MultiplyStats}
+ * exposes running totals over JMX. Close the context to stop its workers. The shared context
+ * lives as long as the JVM and ignores {@link #close()}.
+ */
+public class MatrixMultiplierContext implements AutoCloseable {
+  /** About a 64 x 64 x 64 product, which takes less time than handing it to another thread. */
+  public static final long DEFAULT_SEQUENTIAL_THRESHOLD = 64 * 64 * 64;
+
+  private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+  /** The context whose worker the current thread is, if any. */
+  private static final ThreadLocal<MatrixMultiplierContext> WORKER_OF = new ThreadLocal<>();
+
+  private final ExecutorService executor;
+  private final int numThreads;
+  private final long sequentialThreshold;
+  private final boolean closeable;
+  private final List<MultiplyListener> listeners = new CopyOnWriteArrayList<>();
+
+  public MatrixMultiplierContext() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public MatrixMultiplierContext(int numThreads) {
+    this(numThreads, DEFAULT_SEQUENTIAL_THRESHOLD);
+  }
+
+  public MatrixMultiplierContext(int numThreads, long sequentialThreshold) {
+    this(numThreads, sequentialThreshold, true);
+  }
+
+  private MatrixMultiplierContext(int numThreads, long sequentialThreshold, boolean closeable) {
+    if (numThreads <= 0) {
+      throw new IllegalArgumentException("A context needs at least one thread");
+    }
+    this.numThreads = numThreads;
+    this.sequentialThreshold = sequentialThreshold;
+    this.closeable = closeable;
+    this.executor = Executors.newFixedThreadPool(numThreads, workerFactory());
+  }
+
+  private ThreadFactory workerFactory() {
+    int pool = POOL_COUNT.incrementAndGet();
+    AtomicInteger workers = new AtomicInteger();
+    return task -> {
+      String name = "matrix-multiplier-" + pool + "-" + workers.incrementAndGet();
+      Thread thread =
+          new Thread(
+              () -> {
+                WORKER_OF.set(this);
+                task.run();
+              },
+              name);
+      // Idle workers must not keep the JVM alive, in particular those of the shared context
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  private static class SharedHolder {
+    static final MatrixMultiplierContext SHARED =
+        new MatrixMultiplierContext(
+            Runtime.getRuntime().availableProcessors(), DEFAULT_SEQUENTIAL_THRESHOLD, false);
+  }
+
+  /** The context behind the static {@link MatrixMultiplier} methods. */
+  public static MatrixMultiplierContext shared() {
+    return SharedHolder.SHARED;
+  }
+
+  ExecutorService executor() {
+    return executor;
+  }
+
+  /** Whether the calling thread is one of this context's workers. */
+  boolean isWorkerThread() {
+    return WORKER_OF.get() == this;
+  }
+
+  public int getNumThreads() {
+    return numThreads;
+  }
+
+  public long getSequentialThreshold() {
+    return sequentialThreshold;
+  }
+
+  public Matrix multiply(Matrix a, Matrix b) throws Exception {
+    return multiply(a, b, VectorMatrixMultiplier.kernel(), VectorMatrixMultiplier.engineName());
+  }
+
+  /**
+   * Computes a * b on this context's workers. Do not wait on the result from one of the workers
+   * of the same context, as that would tie up a thread the product may need.
+   */
+  public CompletableFuture<Matrix> multiplyAsync(Matrix a, Matrix b) {
+    return multiplyAsync(
+        a, b, VectorMatrixMultiplier.kernel(), VectorMatrixMultiplier.engineName());
+  }
+
+  public List<Matrix> multiplyBatch(List<? extends Matrix> as, List<? extends Matrix> bs)
+      throws Exception {
+    return BatchMultiplier.multiply(as, bs, this);
+  }
+
+  public MatrixBatch multiplyBatch(MatrixBatch a, MatrixBatch b) throws Exception {
+    return BatchMultiplier.multiply(a, b, this);
+  }
+
+  public void addListener(MultiplyListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(MultiplyListener listener) {
+    listeners.remove(listener);
+  }
+
+  Matrix multiply(Matrix a, Matrix b, RowBandKernel kernel, String engine) throws Exception {
+    checkDimensions(a, b);
+    if (!(a instanceof SparseMatrix || b instanceof SparseMatrix) && isSmall(a, b)) {
+      return multiplySequential(a, b, kernel, engine);
+    }
+    return multiplyAsync(a, b, kernel, engine).get();
+  }
+
+  CompletableFuture<Matrix> multiplyAsync(
+      Matrix a, Matrix b, RowBandKernel kernel, String engine) {
+    checkDimensions(a, b);
+    if (a instanceof SparseMatrix || b instanceof SparseMatrix) {
+      return CompletableFuture.supplyAsync(
+          () -> {
+            long start = System.nanoTime();
+            Matrix result = SparseMultiplier.multiply(a, b);
+            long computed = System.nanoTime() - start;
+            report("SPARSE", true, a, b, 0, computed, new long[] {computed});
+            return result;
+          },
+          executor);
+    }
+    if (isSmall(a, b)) {
+      return CompletableFuture.supplyAsync(
+          () -> multiplySequential(a, b, kernel, engine), executor);
+    }
+    long start = System.nanoTime();
+    MatrixFlatArray flatA = MatrixFlatArray.of(a);
+    MatrixFlatArray flatB = MatrixFlatArray.of(b);
+    int resultNumRows = a.getNumRows();
+    MatrixFlatArray result = new MatrixFlatArray(resultNumRows, b.getNumColumns());
+    long packed = System.nanoTime();
+    int bandSize = (resultNumRows + numThreads - 1) / numThreads;
+    int numBands = (resultNumRows + bandSize - 1) / bandSize;
+    long[] busy = new long[numBands];
+    CompletableFuture<?>[] bands = new CompletableFuture<?>[numBands];
+    for (int band = 0; band < numBands; band++) {
+      int index = band;
+      int firstRow = band * bandSize;
+      int lastRow = Math.min(firstRow + bandSize, resultNumRows);
+      MatrixBlockMultiplier multiplier =
+          new MatrixBlockMultiplier(flatA, flatB, result, kernel, firstRow, lastRow);
+      bands[band] =
+          CompletableFuture.runAsync(
+              () -> {
+                long bandStart = System.nanoTime();
+                multiplier.run();
+                busy[index] = System.nanoTime() - bandStart;
+              },
+              executor);
+    }
+    return CompletableFuture.allOf(bands)
+        .thenApply(
+            done -> {
+              long computed = System.nanoTime();
+              report(engine, false, a, b, packed - start, computed - packed, busy);
+              return result;
+            });
+  }
+
+  private boolean isSmall(Matrix a, Matrix b) {
+    long multiplyAdds = (long) a.getNumRows() * a.getNumColumns() * b.getNumColumns();
+    return multiplyAdds < sequentialThreshold;
+  }
+
+  private Matrix multiplySequential(Matrix a, Matrix b, RowBandKernel kernel, String engine) {
+    long start = System.nanoTime();
+    MatrixFlatArray flatA = MatrixFlatArray.of(a);
+    MatrixFlatArray flatB = MatrixFlatArray.of(b);
+    MatrixFlatArray result = new MatrixFlatArray(a.getNumRows(), b.getNumColumns());
+    long packed = System.nanoTime();
+    new MatrixBlockMultiplier(flatA, flatB, result, kernel, 0, a.getNumRows()).run();
+    long computed = System.nanoTime() - packed;
+    report(engine, true, a, b, packed - start, computed, new long[] {computed});
+    return result;
+  }
+
+  /**
+   * Runs a product on an engine that schedules its own work, reporting the whole run as compute
+   * time.
+   */
+  <T> T measure(String engine, int rows, int inner, int cols, Callable<T> product)
+      throws Exception {
+    long start = System.nanoTime();
+    T result = product.call();
+    report(engine, false, rows, inner, cols, 0, System.nanoTime() - start, new long[0]);
+    return result;
+  }
+
+  private void report(
+      String engine,
+      boolean sequential,
+      Matrix a,
+      Matrix b,
+      long packingNanos,
+      long computeNanos,
+      long[] bandBusyNanos) {
+    report(
+        engine,
+        sequential,
+        a.getNumRows(),
+        a.getNumColumns(),
+        b.getNumColumns(),
+        packingNanos,
+        computeNanos,
+        bandBusyNanos);
+  }
+
+  void report(
+      String engine,
+      boolean sequential,
+      int rows,
+      int inner,
+      int cols,
+      long packingNanos,
+      long computeNanos,
+      long[] bandBusyNanos) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+    MultiplyMetrics metrics =
+        new MultiplyMetrics(
+            engine,
+            sequential,
+            rows,
+            inner,
+            cols,
+            packingNanos,
+            computeNanos,
+            bandBusyNanos);
+    for (MultiplyListener listener : listeners) {
+      try {
+        listener.multiplyCompleted(metrics);
+      } catch (RuntimeException e) {
+        // A broken listener must not fail the multiplication it was observing
+        System.err.println("Multiply listener failed: " + e);
+      }
+    }
+  }
+
+  private static void checkDimensions(Matrix a, Matrix b) {
+    if (a.getNumColumns() != b.getNumRows()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+  }
+
+  /** Stops the workers once queued products have finished. Does nothing for the shared context. */
+  @Override
+  public void close() {
+    if (!closeable) {
+      return;
+    }
+    executor.shutdown();
+    // The code below is taken from Oracle docs on ExecutorService
+    try {
+      // Wait a while for existing tasks to terminate
+      if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+        executor.shutdownNow(); // Cancel currently executing tasks
+        // Wait a while for tasks to respond to being cancelled
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+          System.err.println("Pool did not terminate");
+        }
+      }
+    } catch (InterruptedException ie) {
+      // (Re-)Cancel if current thread also interrupted
+      executor.shutdownNow();
+      // Preserve interrupt status
+      Thread.currentThread().interrupt();
+    }
+  }
+}
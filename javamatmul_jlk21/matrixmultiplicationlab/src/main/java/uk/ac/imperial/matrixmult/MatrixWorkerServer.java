@@ -0,0 +1,191 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A worker for {@link DistributedMultiplier}. Each connection is one distributed product: the
+ * coordinator streams panels of A and B tiles, the worker multiplies them into the C tiles it
+ * owns with the local kernels, and hands the C tiles back at the end. See {@link WorkerProtocol}.
+ *
+ * <p>Start one per machine (or several on one machine for testing) with {@code java
+ * uk.ac.imperial.matrixmult.MatrixWorkerServer [port [bind address]]}. It prints the port it
+ * listens on.
+ *
+ * <p>The protocol has no authentication, so by default the worker only listens on the loopback
+ * address. Binding it to another interface lets anyone who can reach that interface use it. At
+ * most {@link #MAX_CONNECTIONS} connections are served at once; further ones wait to be accepted.
+ */
+public class MatrixWorkerServer implements Closeable {
+  public static final int MAX_CONNECTIONS = 16;
+
+  private final ServerSocket serverSocket;
+  private final MatrixMultiplierContext context;
+  private final Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+  private final Thread acceptor;
+
+  public MatrixWorkerServer(InetAddress bindAddress, int port, MatrixMultiplierContext context)
+      throws IOException {
+    this.serverSocket = new ServerSocket(port, 0, bindAddress);
+    this.context = context;
+    this.acceptor = new Thread(this::acceptConnections, "matrix-worker-" + getPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  public MatrixWorkerServer(int port, MatrixMultiplierContext context) throws IOException {
+    this(InetAddress.getLoopbackAddress(), port, context);
+  }
+
+  public MatrixWorkerServer(int port) throws IOException {
+    this(port, MatrixMultiplierContext.shared());
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  private void acceptConnections() {
+    while (!serverSocket.isClosed()) {
+      try {
+        connections.acquire();
+      } catch (InterruptedException e) {
+        return;
+      }
+      try {
+        Socket socket = serverSocket.accept();
+        Thread handler =
+            new Thread(
+                () -> {
+                  try {
+                    serve(socket);
+                  } finally {
+                    connections.release();
+                  }
+                },
+                acceptor.getName() + "-connection");
+        handler.setDaemon(true);
+        handler.start();
+      } catch (IOException e) {
+        connections.release();
+        if (!serverSocket.isClosed()) {
+          System.err.println("Matrix worker failed to accept: " + e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    Map<Long, MatrixFlatArray> tiles = new HashMap<>();
+    try (Socket connection = socket;
+        DataInputStream in =
+            new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+      while (true) {
+        byte opcode;
+        try {
+          opcode = in.readByte();
+        } catch (EOFException e) {
+          return;
+        }
+        try {
+          switch (opcode) {
+            case WorkerProtocol.STEP:
+              step(in, tiles);
+              out.writeByte(WorkerProtocol.OK);
+              break;
+            case WorkerProtocol.GATHER:
+              out.writeByte(WorkerProtocol.OK);
+              gather(out, tiles);
+              break;
+            default:
+              throw new IOException("Unknown opcode " + opcode);
+          }
+        } catch (Exception e) {
+          // The stream is out of step after a failure, so report it and drop the connection
+          out.writeByte(WorkerProtocol.ERROR);
+          out.writeUTF(String.valueOf(e));
+          out.flush();
+          return;
+        }
+        out.flush();
+      }
+    } catch (SocketException e) {
+      // The coordinator went away; its product is abandoned
+    } catch (IOException e) {
+      System.err.println("Matrix worker connection failed: " + e);
+    }
+  }
+
+  private void step(DataInputStream in, Map<Long, MatrixFlatArray> tiles) throws Exception {
+    List<Integer> blockRows = new ArrayList<>();
+    List<MatrixFlatArray> aTiles = new ArrayList<>();
+    for (int count = in.readInt(); count > 0; count--) {
+      blockRows.add(in.readInt());
+      aTiles.add(WorkerProtocol.readTile(in));
+    }
+    List<Integer> blockColumns = new ArrayList<>();
+    List<MatrixFlatArray> bTiles = new ArrayList<>();
+    for (int count = in.readInt(); count > 0; count--) {
+      blockColumns.add(in.readInt());
+      bTiles.add(WorkerProtocol.readTile(in));
+    }
+    for (int i = 0; i < aTiles.size(); i++) {
+      MatrixFlatArray aTile = aTiles.get(i);
+      for (int j = 0; j < bTiles.size(); j++) {
+        MatrixFlatArray bTile = bTiles.get(j);
+        MatrixFlatArray cTile =
+            tiles.computeIfAbsent(
+                key(blockRows.get(i), blockColumns.get(j)),
+                k -> new MatrixFlatArray(aTile.getNumRows(), bTile.getNumColumns()));
+        GemmMultiplier.gemm(false, false, 1.0, aTile, bTile, 1.0, cTile, context);
+      }
+    }
+  }
+
+  private static void gather(DataOutputStream out, Map<Long, MatrixFlatArray> tiles)
+      throws IOException {
+    out.writeInt(tiles.size());
+    for (Map.Entry<Long, MatrixFlatArray> entry : tiles.entrySet()) {
+      out.writeInt((int) (entry.getKey() >>> 32));
+      out.writeInt((int) (long) entry.getKey());
+      WorkerProtocol.writeTile(out, entry.getValue());
+    }
+    tiles.clear();
+  }
+
+  private static long key(int blockRow, int blockColumn) {
+    return ((long) blockRow << 32) | (blockColumn & 0xffffffffL);
+  }
+
+  /** Stops accepting connections. Products already in progress run to completion. */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  public static void main(String[] args) throws Exception {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+    InetAddress bindAddress =
+        args.length > 1 ? InetAddress.getByName(args[1]) : InetAddress.getLoopbackAddress();
+    MatrixWorkerServer server =
+        new MatrixWorkerServer(bindAddress, port, MatrixMultiplierContext.shared());
+    System.out.println("Listening on port " + server.getPort());
+    server.acceptor.join();
+  }
+}
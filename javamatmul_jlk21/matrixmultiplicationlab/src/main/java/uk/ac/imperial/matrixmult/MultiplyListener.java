@@ -0,0 +1,8 @@
+package uk.ac.imperial.matrixmult;
+
+/** Told about every multiplication run by a {@link MatrixMultiplierContext} it is added to. */
+public interface MultiplyListener {
+
+  /** Called on the thread that finished the product, so it should return quickly. */
+  public void multiplyCompleted(MultiplyMetrics metrics);
+}
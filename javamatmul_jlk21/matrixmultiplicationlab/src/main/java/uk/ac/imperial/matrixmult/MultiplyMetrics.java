@@ -0,0 +1,127 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/**
+ * What one multiplication did and where its time went. Phases are wall-clock: packing copies the
+ * inputs into the kernels' flat layout, and compute runs the kernel until the last band is done.
+ * The band engines write straight into the result, so there is nothing to merge afterwards.
+ * Engines that schedule their own work (fork/join, Strassen, out-of-core and so on) report their
+ * whole run as compute time and have no bands.
+ */
+public final class MultiplyMetrics {
+  private final String engine;
+  private final boolean sequential;
+  private final int rows;
+  private final int inner;
+  private final int cols;
+  private final long packingNanos;
+  private final long computeNanos;
+  private final long[] bandBusyNanos;
+
+  MultiplyMetrics(
+      String engine,
+      boolean sequential,
+      int rows,
+      int inner,
+      int cols,
+      long packingNanos,
+      long computeNanos,
+      long[] bandBusyNanos) {
+    this.engine = engine;
+    this.sequential = sequential;
+    this.rows = rows;
+    this.inner = inner;
+    this.cols = cols;
+    this.packingNanos = packingNanos;
+    this.computeNanos = computeNanos;
+    this.bandBusyNanos = bandBusyNanos;
+  }
+
+  /**
+   * The engine that ran: a {@link MultiplyStrategy} name, or SPARSE, GEMM, BATCH, OUT_OF_CORE or
+   * DISTRIBUTED.
+   */
+  public String getEngine() {
+    return engine;
+  }
+
+  /** Whether the product ran as a single unsplit task on one thread. */
+  public boolean isSequential() {
+    return sequential;
+  }
+
+  public int getNumRows() {
+    return rows;
+  }
+
+  public int getInnerDimension() {
+    return inner;
+  }
+
+  public int getNumColumns() {
+    return cols;
+  }
+
+  /** 2 * m * k * n, the floating-point operations of the equivalent dense product. */
+  public long getFlops() {
+    return 2L * rows * inner * cols;
+  }
+
+  public long getPackingNanos() {
+    return packingNanos;
+  }
+
+  public long getComputeNanos() {
+    return computeNanos;
+  }
+
+  public long getElapsedNanos() {
+    return packingNanos + computeNanos;
+  }
+
+  /** Dense-equivalent GFLOP/s over the whole call. */
+  public double getGflops() {
+    long elapsed = getElapsedNanos();
+    return elapsed == 0 ? 0.0 : (double) getFlops() / elapsed;
+  }
+
+  /**
+   * Time each band of rows spent computing, one entry per band. There are at most as many bands
+   * as worker threads, but a thread that finishes its band early may go on to run another.
+   */
+  public long[] getBandBusyNanos() {
+    return bandBusyNanos.clone();
+  }
+
+  /**
+   * The fraction of the compute phase the bands spent running. Well below 1 means bands sat
+   * queued waiting for a thread, or finished early and waited for the others. 0 for engines
+   * without bands.
+   */
+  public double getUtilisation() {
+    if (computeNanos == 0 || bandBusyNanos.length == 0) {
+      return 0.0;
+    }
+    long busy = 0;
+    for (long nanos : bandBusyNanos) {
+      busy += nanos;
+    }
+    return (double) busy / ((double) computeNanos * bandBusyNanos.length);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s%s %dx%dx%d: %.3f GFLOP/s, packing %d ns, compute %d ns, band busy %s",
+        engine,
+        sequential ? " (sequential)" : "",
+        rows,
+        inner,
+        cols,
+        getGflops(),
+        packingNanos,
+        computeNanos,
+        Arrays.toString(bandBusyNanos));
+  }
+}
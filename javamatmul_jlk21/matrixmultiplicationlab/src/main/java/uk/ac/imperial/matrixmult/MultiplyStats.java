@@ -0,0 +1,96 @@
+package uk.ac.imperial.matrixmult;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Running totals over the multiplications of a context, readable as a JMX MBean so that a live
+ * service can be inspected with jconsole or any JMX client.
+ */
+public class MultiplyStats implements MultiplyStatsMBean, MultiplyListener {
+  private long calls;
+  private long totalFlops;
+  private long totalElapsedNanos;
+  private MultiplyMetrics last;
+
+  /**
+   * Adds new stats as a listener to the context and registers them with the platform MBean
+   * server as {@code uk.ac.imperial.matrixmult:type=MultiplyStats,name=<name>}.
+   */
+  public static MultiplyStats register(MatrixMultiplierContext context, String name)
+      throws JMException {
+    MultiplyStats stats = new MultiplyStats();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    server.registerMBean(stats, objectName(name));
+    context.addListener(stats);
+    return stats;
+  }
+
+  public static void unregister(MatrixMultiplierContext context, MultiplyStats stats, String name)
+      throws JMException {
+    context.removeListener(stats);
+    ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+  }
+
+  private static ObjectName objectName(String name) throws JMException {
+    return new ObjectName("uk.ac.imperial.matrixmult:type=MultiplyStats,name=" + name);
+  }
+
+  @Override
+  public synchronized void multiplyCompleted(MultiplyMetrics metrics) {
+    calls++;
+    totalFlops += metrics.getFlops();
+    totalElapsedNanos += metrics.getElapsedNanos();
+    last = metrics;
+  }
+
+  @Override
+  public synchronized long getCalls() {
+    return calls;
+  }
+
+  @Override
+  public synchronized long getTotalFlops() {
+    return totalFlops;
+  }
+
+  @Override
+  public synchronized long getTotalElapsedNanos() {
+    return totalElapsedNanos;
+  }
+
+  @Override
+  public synchronized double getAverageGflops() {
+    return totalElapsedNanos == 0 ? 0.0 : (double) totalFlops / totalElapsedNanos;
+  }
+
+  @Override
+  public synchronized double getLastGflops() {
+    return last == null ? 0.0 : last.getGflops();
+  }
+
+  @Override
+  public synchronized double getLastUtilisation() {
+    return last == null ? 0.0 : last.getUtilisation();
+  }
+
+  @Override
+  public synchronized String getLastEngine() {
+    return last == null ? null : last.getEngine();
+  }
+
+  @Override
+  public synchronized String getLastMetrics() {
+    return last == null ? null : last.toString();
+  }
+
+  @Override
+  public synchronized void reset() {
+    calls = 0;
+    totalFlops = 0;
+    totalElapsedNanos = 0;
+    last = null;
+  }
+}
@@ -0,0 +1,22 @@
+package uk.ac.imperial.matrixmult;
+
+public interface MultiplyStatsMBean {
+
+  public long getCalls();
+
+  public long getTotalFlops();
+
+  public long getTotalElapsedNanos();
+
+  public double getAverageGflops();
+
+  public double getLastGflops();
+
+  public double getLastUtilisation();
+
+  public String getLastEngine();
+
+  public String getLastMetrics();
+
+  public void reset();
+}
@@ -0,0 +1,92 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * The multiply engines. Each reports, through {@link #errorBound}, how far its result may be from
+ * the exact product; that bound is the delta to use with {@link Matrix#equals(Matrix, double)}.
+ */
+public enum MultiplyStrategy {
+  /** One task per result cell on a fixed pool ({@link MatrixMultiplier#multiply}). */
+  CELL {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) throws Exception {
+      return MatrixMultiplier.multiply(a, b);
+    }
+  },
+  /** Tiled i-k-j kernel, one band of rows per core. */
+  BLOCKED {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) throws Exception {
+      return MatrixMultiplier.multiplyBlocked(a, b);
+    }
+  },
+  /** As {@link #BLOCKED}, with the inner loop on the Vector API when it is available. */
+  VECTORIZED {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) throws Exception {
+      return MatrixMultiplier.multiplyVectorized(a, b);
+    }
+  },
+  /** Panels packed into cache-sized buffers and a 4 x 8 register-blocked micro-kernel. */
+  PACKED {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) throws Exception {
+      return MatrixMultiplier.multiplyPacked(a, b);
+    }
+  },
+  /** Recursive quadrant splitting on the common fork/join pool. */
+  FORK_JOIN {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) {
+      return MatrixMultiplier.multiplyForkJoin(a, b);
+    }
+  },
+  /** Strassen-Winograd above {@link StrassenMultiplier#DEFAULT_CUTOFF}, otherwise BLOCKED. */
+  STRASSEN {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) throws Exception {
+      return MatrixMultiplier.multiplyStrassen(a, b);
+    }
+
+    @Override
+    public double errorBound(Matrix a, Matrix b) {
+      double growth = StrassenMultiplier.errorGrowth(a, b, StrassenMultiplier.DEFAULT_CUTOFF);
+      return growth * UNIT_ROUNDOFF * maxAbs(a) * maxAbs(b);
+    }
+  },
+  /**
+   * Whichever engine {@link MatrixAutotuner} chose for the operands' shape and storage. When an
+   * operand is sparse, as {@link MatrixBuilder#compact} makes low-density matrices, that may be
+   * the sparse engine rather than a classical one.
+   */
+  AUTO {
+    @Override
+    public Matrix multiply(Matrix a, Matrix b) throws Exception {
+      return MatrixMultiplier.multiplyTuned(a, b);
+    }
+  };
+
+  public abstract Matrix multiply(Matrix a, Matrix b) throws Exception;
+
+  /**
+   * The largest possible absolute error of any cell of {@code multiply(a, b)}, to first order in
+   * the unit roundoff. The classical engines only differ in the order in which they add up each
+   * cell's products, so they share the bound {@code n^2 * u * max|a| * max|b|} for inner
+   * dimension n (Higham, Accuracy and Stability of Numerical Algorithms, section 23.2.2).
+   */
+  public double errorBound(Matrix a, Matrix b) {
+    int n = a.getNumColumns();
+    return (double) n * n * UNIT_ROUNDOFF * maxAbs(a) * maxAbs(b);
+  }
+
+  static final double UNIT_ROUNDOFF = Math.ulp(1.0) / 2;
+
+  static double maxAbs(Matrix m) {
+    double max = 0;
+    for (int row = 0; row < m.getNumRows(); row++) {
+      for (double value : m.getRow(row)) {
+        max = Math.max(max, Math.abs(value));
+      }
+    }
+    return max;
+  }
+}
@@ -0,0 +1,83 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Multiplies matrices that need not fit in memory into a memory-mapped result. Each result tile
+ * is computed independently: the matching row of tiles of a and column of tiles of b are streamed
+ * through one tile at a time, so a worker only ever holds three tiles.
+ */
+public class OutOfCoreMultiplier {
+  /** 1024 x 1024 doubles make 8MB tiles. */
+  public static final int DEFAULT_TILE_SIZE = 1024;
+
+  public static void multiply(Matrix a, Matrix b, MatrixMapped result, int tileSize)
+      throws Exception {
+    if (a.getNumColumns() != b.getNumRows()
+        || result.getNumRows() != a.getNumRows()
+        || result.getNumColumns() != b.getNumColumns()) {
+      throw new IllegalArgumentException("Matrix dimensions do not match");
+    }
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("Tile size must be positive");
+    }
+    MatrixMultiplierContext context = MatrixMultiplierContext.shared();
+    context.measure(
+        "OUT_OF_CORE",
+        a.getNumRows(),
+        a.getNumColumns(),
+        b.getNumColumns(),
+        () -> {
+          multiplyTiles(a, b, result, tileSize, context);
+          return result;
+        });
+  }
+
+  private static void multiplyTiles(
+      Matrix a, Matrix b, MatrixMapped result, int tileSize, MatrixMultiplierContext context)
+      throws Exception {
+    List<CompletableFuture<Void>> tiles = new ArrayList<>();
+    for (int row = 0; row < result.getNumRows(); row += tileSize) {
+      for (int col = 0; col < result.getNumColumns(); col += tileSize) {
+        int tileRow = row;
+        int tileCol = col;
+        tiles.add(
+            CompletableFuture.runAsync(
+                () -> multiplyTile(a, b, result, tileRow, tileCol, tileSize), context.executor()));
+      }
+    }
+    CompletableFuture.allOf(tiles.toArray(new CompletableFuture<?>[0])).get();
+    result.force();
+  }
+
+  private static void multiplyTile(
+      Matrix a, Matrix b, MatrixMapped result, int row, int col, int tileSize) {
+    int rows = Math.min(tileSize, result.getNumRows() - row);
+    int cols = Math.min(tileSize, result.getNumColumns() - col);
+    double[] aTile = new double[rows * tileSize];
+    double[] bTile = new double[tileSize * cols];
+    double[] cTile = new double[rows * cols];
+    for (int k = 0; k < a.getNumColumns(); k += tileSize) {
+      int inner = Math.min(tileSize, a.getNumColumns() - k);
+      readTile(a, row, k, rows, inner, aTile);
+      readTile(b, k, col, inner, cols, bTile);
+      MatrixBlockMultiplier.multiplyRows(aTile, bTile, cTile, inner, cols, 0, rows);
+    }
+    result.writeBlock(row, col, rows, cols, cTile);
+  }
+
+  private static void readTile(
+      Matrix m, int row, int col, int numRows, int numCols, double[] destination) {
+    if (m instanceof MatrixMapped) {
+      ((MatrixMapped) m).readBlock(row, col, numRows, numCols, destination);
+      return;
+    }
+    for (int r = 0; r < numRows; r++) {
+      for (int c = 0; c < numCols; c++) {
+        destination[r * numCols + c] = m.get(row + r, col + c);
+      }
+    }
+  }
+}
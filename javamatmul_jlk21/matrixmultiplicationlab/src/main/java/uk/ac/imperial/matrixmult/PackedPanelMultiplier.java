@@ -0,0 +1,222 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * The GotoBLAS layering of a dense product, as a {@link RowBandKernel}. Each band works through
+ * {@code KC x NC} panels of b and {@code MC x KC} blocks of a, copying each into a contiguous
+ * thread-local buffer in the order the micro-kernel reads it: b as {@code NR}-wide column strips
+ * and a as {@code MR}-high row strips, zero-padded at the edges. The micro-kernel then computes
+ * an {@code MR x NR} tile of the result in local accumulators, reading both operands with unit
+ * stride and touching the result only once per {@code KC} step.
+ *
+ * <p>The block sizes aim to keep a strip of b in L1 and a block of a in L2 while the panel of b
+ * streams from L3. Full tiles use {@link PackedVectorMicroKernel} when the Vector API is usable.
+ */
+public class PackedPanelMultiplier {
+  static final int MR = 4;
+  static final int NR = 8;
+  static final int MC = 64;
+  static final int KC = 256;
+  static final int NC = 512;
+
+  private static final boolean VECTOR_MICRO_KERNEL =
+      VectorMatrixMultiplier.isVectorized() && PackedVectorMicroKernel.usable();
+
+  private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+  private static class Buffers {
+    final double[] packedA = new double[MC * KC];
+    final double[] packedB = new double[KC * NC];
+  }
+
+  /** See {@link RowBandKernel} for the contract. */
+  static void multiplyRows(
+      double[] a, double[] b, double[] c, int inner, int cols, int firstRow, int lastRow) {
+    Buffers buffers = BUFFERS.get();
+    for (int jc = 0; jc < cols; jc += NC) {
+      int nc = Math.min(NC, cols - jc);
+      for (int pc = 0; pc < inner; pc += KC) {
+        int kc = Math.min(KC, inner - pc);
+        packB(b, cols, pc, kc, jc, nc, buffers.packedB);
+        for (int ic = firstRow; ic < lastRow; ic += MC) {
+          int mc = Math.min(MC, lastRow - ic);
+          packA(a, inner, ic, mc, pc, kc, buffers.packedA);
+          for (int jr = 0; jr < nc; jr += NR) {
+            int nr = Math.min(NR, nc - jr);
+            for (int ir = 0; ir < mc; ir += MR) {
+              int mr = Math.min(MR, mc - ir);
+              if (VECTOR_MICRO_KERNEL && mr == MR && nr == NR) {
+                PackedVectorMicroKernel.multiply(
+                    kc,
+                    buffers.packedA,
+                    ir * kc,
+                    buffers.packedB,
+                    jr * kc,
+                    c,
+                    (ic + ir) * cols + jc + jr,
+                    cols);
+                continue;
+              }
+              microKernel(
+                  kc,
+                  buffers.packedA,
+                  ir * kc,
+                  buffers.packedB,
+                  jr * kc,
+                  c,
+                  (ic + ir) * cols + jc + jr,
+                  cols,
+                  mr,
+                  nr);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Copies b[pc:pc+kc, jc:jc+nc] as NR-wide strips, each strip stored row after row. */
+  private static void packB(
+      double[] b, int cols, int pc, int kc, int jc, int nc, double[] packed) {
+    int index = 0;
+    for (int jr = 0; jr < nc; jr += NR) {
+      int nr = Math.min(NR, nc - jr);
+      for (int k = 0; k < kc; k++) {
+        int source = (pc + k) * cols + jc + jr;
+        for (int j = 0; j < nr; j++) {
+          packed[index + j] = b[source + j];
+        }
+        for (int j = nr; j < NR; j++) {
+          packed[index + j] = 0.0;
+        }
+        index += NR;
+      }
+    }
+  }
+
+  /** Copies a[ic:ic+mc, pc:pc+kc] as MR-high strips, each strip stored column after column. */
+  private static void packA(
+      double[] a, int inner, int ic, int mc, int pc, int kc, double[] packed) {
+    int index = 0;
+    for (int ir = 0; ir < mc; ir += MR) {
+      int mr = Math.min(MR, mc - ir);
+      for (int k = 0; k < kc; k++) {
+        int source = (ic + ir) * inner + pc + k;
+        for (int i = 0; i < mr; i++) {
+          packed[index + i] = a[source + i * inner];
+        }
+        for (int i = mr; i < MR; i++) {
+          packed[index + i] = 0.0;
+        }
+        index += MR;
+      }
+    }
+  }
+
+  /**
+   * Adds the product of an MR-high strip of a and an NR-wide strip of b into the result tile at
+   * c[offset], of which only the top-left mr x nr cells exist.
+   */
+  private static void microKernel(
+      int kc,
+      double[] a,
+      int aOffset,
+      double[] b,
+      int bOffset,
+      double[] c,
+      int offset,
+      int cols,
+      int mr,
+      int nr) {
+    double c00 = 0, c01 = 0, c02 = 0, c03 = 0, c04 = 0, c05 = 0, c06 = 0, c07 = 0;
+    double c10 = 0, c11 = 0, c12 = 0, c13 = 0, c14 = 0, c15 = 0, c16 = 0, c17 = 0;
+    double c20 = 0, c21 = 0, c22 = 0, c23 = 0, c24 = 0, c25 = 0, c26 = 0, c27 = 0;
+    double c30 = 0, c31 = 0, c32 = 0, c33 = 0, c34 = 0, c35 = 0, c36 = 0, c37 = 0;
+    int ai = aOffset;
+    int bi = bOffset;
+    for (int k = 0; k < kc; k++, ai += MR, bi += NR) {
+      double a0 = a[ai];
+      double a1 = a[ai + 1];
+      double a2 = a[ai + 2];
+      double a3 = a[ai + 3];
+      double b0 = b[bi];
+      double b1 = b[bi + 1];
+      double b2 = b[bi + 2];
+      double b3 = b[bi + 3];
+      double b4 = b[bi + 4];
+      double b5 = b[bi + 5];
+      double b6 = b[bi + 6];
+      double b7 = b[bi + 7];
+      c00 += a0 * b0;
+      c01 += a0 * b1;
+      c02 += a0 * b2;
+      c03 += a0 * b3;
+      c04 += a0 * b4;
+      c05 += a0 * b5;
+      c06 += a0 * b6;
+      c07 += a0 * b7;
+      c10 += a1 * b0;
+      c11 += a1 * b1;
+      c12 += a1 * b2;
+      c13 += a1 * b3;
+      c14 += a1 * b4;
+      c15 += a1 * b5;
+      c16 += a1 * b6;
+      c17 += a1 * b7;
+      c20 += a2 * b0;
+      c21 += a2 * b1;
+      c22 += a2 * b2;
+      c23 += a2 * b3;
+      c24 += a2 * b4;
+      c25 += a2 * b5;
+      c26 += a2 * b6;
+      c27 += a2 * b7;
+      c30 += a3 * b0;
+      c31 += a3 * b1;
+      c32 += a3 * b2;
+      c33 += a3 * b3;
+      c34 += a3 * b4;
+      c35 += a3 * b5;
+      c36 += a3 * b6;
+      c37 += a3 * b7;
+    }
+    if (mr == MR && nr == NR) {
+      storeRow(c, offset, c00, c01, c02, c03, c04, c05, c06, c07);
+      storeRow(c, offset + cols, c10, c11, c12, c13, c14, c15, c16, c17);
+      storeRow(c, offset + 2 * cols, c20, c21, c22, c23, c24, c25, c26, c27);
+      storeRow(c, offset + 3 * cols, c30, c31, c32, c33, c34, c35, c36, c37);
+      return;
+    }
+    double[] tile = {
+      c00, c01, c02, c03, c04, c05, c06, c07,
+      c10, c11, c12, c13, c14, c15, c16, c17,
+      c20, c21, c22, c23, c24, c25, c26, c27,
+      c30, c31, c32, c33, c34, c35, c36, c37
+    };
+    for (int i = 0; i < mr; i++) {
+      for (int j = 0; j < nr; j++) {
+        c[offset + i * cols + j] += tile[i * NR + j];
+      }
+    }
+  }
+
+  private static void storeRow(
+      double[] c,
+      int offset,
+      double v0,
+      double v1,
+      double v2,
+      double v3,
+      double v4,
+      double v5,
+      double v6,
+      double v7) {
+    c[offset] += v0;
+    c[offset + 1] += v1;
+    c[offset + 2] += v2;
+    c[offset + 3] += v3;
+    c[offset + 4] += v4;
+    c[offset + 5] += v5;
+    c[offset + 6] += v6;
+    c[offset + 7] += v7;
+  }
+}
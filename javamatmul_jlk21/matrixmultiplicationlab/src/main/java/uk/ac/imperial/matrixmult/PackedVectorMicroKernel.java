@@ -0,0 +1,58 @@
+package uk.ac.imperial.matrixmult;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The 4 x 8 micro-kernel of {@link PackedPanelMultiplier} with each accumulator row held in two
+ * 4-lane vectors. Only loaded once {@link VectorMatrixMultiplier} has found the incubator module,
+ * and only used when the hardware has vectors of at least 4 doubles, since narrower hardware would
+ * emulate the 256-bit species.
+ */
+class PackedVectorMicroKernel {
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_256;
+
+  static boolean usable() {
+    return DoubleVector.SPECIES_PREFERRED.length() >= SPECIES.length();
+  }
+
+  /** Adds a full MR x NR tile into c[offset]; see {@link PackedPanelMultiplier}. */
+  static void multiply(
+      int kc, double[] a, int aOffset, double[] b, int bOffset, double[] c, int offset, int cols) {
+    DoubleVector c0l = DoubleVector.zero(SPECIES);
+    DoubleVector c0h = c0l;
+    DoubleVector c1l = c0l;
+    DoubleVector c1h = c0l;
+    DoubleVector c2l = c0l;
+    DoubleVector c2h = c0l;
+    DoubleVector c3l = c0l;
+    DoubleVector c3h = c0l;
+    int ai = aOffset;
+    int bi = bOffset;
+    for (int k = 0; k < kc; k++, ai += PackedPanelMultiplier.MR, bi += PackedPanelMultiplier.NR) {
+      DoubleVector bl = DoubleVector.fromArray(SPECIES, b, bi);
+      DoubleVector bh = DoubleVector.fromArray(SPECIES, b, bi + 4);
+      DoubleVector a0 = DoubleVector.broadcast(SPECIES, a[ai]);
+      DoubleVector a1 = DoubleVector.broadcast(SPECIES, a[ai + 1]);
+      DoubleVector a2 = DoubleVector.broadcast(SPECIES, a[ai + 2]);
+      DoubleVector a3 = DoubleVector.broadcast(SPECIES, a[ai + 3]);
+      c0l = a0.fma(bl, c0l);
+      c0h = a0.fma(bh, c0h);
+      c1l = a1.fma(bl, c1l);
+      c1h = a1.fma(bh, c1h);
+      c2l = a2.fma(bl, c2l);
+      c2h = a2.fma(bh, c2h);
+      c3l = a3.fma(bl, c3l);
+      c3h = a3.fma(bh, c3h);
+    }
+    store(c, offset, c0l, c0h);
+    store(c, offset + cols, c1l, c1h);
+    store(c, offset + 2 * cols, c2l, c2h);
+    store(c, offset + 3 * cols, c3l, c3h);
+  }
+
+  private static void store(double[] c, int offset, DoubleVector low, DoubleVector high) {
+    DoubleVector.fromArray(SPECIES, c, offset).add(low).intoArray(c, offset);
+    DoubleVector.fromArray(SPECIES, c, offset + 4).add(high).intoArray(c, offset + 4);
+  }
+}
@@ -0,0 +1,10 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * Adds rows [firstRow, lastRow) of a * b into c, where all three are row-major arrays, a has
+ * {@code inner} columns and b and c have {@code cols} columns.
+ */
+interface RowBandKernel {
+  void multiplyRows(
+      double[] a, double[] b, double[] c, int inner, int cols, int firstRow, int lastRow);
+}
@@ -0,0 +1,14 @@
+package uk.ac.imperial.matrixmult;
+
+public interface SparseMatrix extends Matrix {
+
+  public int getNumNonZeros();
+
+  public MatrixCsr toCsr();
+
+  public MatrixCsc toCsc();
+
+  public default double getDensity() {
+    return (double) getNumNonZeros() / ((double) getNumRows() * getNumColumns());
+  }
+}
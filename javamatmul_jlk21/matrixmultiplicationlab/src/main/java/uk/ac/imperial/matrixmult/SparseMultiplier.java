@@ -0,0 +1,142 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Arrays;
+
+/**
+ * Products where at least one side is sparse. Every kernel only visits the stored non-zeros of
+ * the sparse operands, so the cost scales with the non-zero count rather than the full size.
+ */
+public class SparseMultiplier {
+
+  public static Matrix multiply(Matrix a, Matrix b) {
+    assert a.getNumColumns() == b.getNumRows();
+    if (a instanceof SparseMatrix && b instanceof SparseMatrix) {
+      return multiply(((SparseMatrix) a).toCsr(), ((SparseMatrix) b).toCsr());
+    }
+    if (a instanceof SparseMatrix) {
+      return multiply(((SparseMatrix) a).toCsr(), MatrixFlatArray.of(b));
+    }
+    if (b instanceof MatrixCsc) {
+      return multiply(MatrixFlatArray.of(a), (MatrixCsc) b);
+    }
+    if (b instanceof SparseMatrix) {
+      return multiply(MatrixFlatArray.of(a), ((SparseMatrix) b).toCsr());
+    }
+    throw new IllegalArgumentException("At least one operand must be sparse");
+  }
+
+  /** Gustavson's row-by-row algorithm: O(flops + rows of a) with a dense row accumulator. */
+  public static MatrixCsr multiply(MatrixCsr a, MatrixCsr b) {
+    CompressedSparseArrays sa = a.storage();
+    CompressedSparseArrays sb = b.storage();
+    int rows = sa.majorSize;
+    int cols = sb.minorSize;
+    double[] accumulator = new double[cols];
+    // marker[j] == row + 1 iff column j has already been touched while computing this row
+    int[] marker = new int[cols];
+    int[] touched = new int[cols];
+    int[] pointers = new int[rows + 1];
+    int[] indices = new int[Math.max(8, sa.nonZeros())];
+    double[] values = new double[indices.length];
+    int nnz = 0;
+    for (int i = 0; i < rows; i++) {
+      int numTouched = 0;
+      for (int p = sa.pointers[i]; p < sa.pointers[i + 1]; p++) {
+        int k = sa.indices[p];
+        double aik = sa.values[p];
+        for (int q = sb.pointers[k]; q < sb.pointers[k + 1]; q++) {
+          int j = sb.indices[q];
+          if (marker[j] != i + 1) {
+            marker[j] = i + 1;
+            accumulator[j] = 0.0;
+            touched[numTouched++] = j;
+          }
+          accumulator[j] += aik * sb.values[q];
+        }
+      }
+      Arrays.sort(touched, 0, numTouched);
+      if (nnz + numTouched > indices.length) {
+        int capacity = Math.max(nnz + numTouched, indices.length * 2);
+        indices = Arrays.copyOf(indices, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      for (int t = 0; t < numTouched; t++) {
+        int j = touched[t];
+        if (accumulator[j] != 0.0) {
+          indices[nnz] = j;
+          values[nnz] = accumulator[j];
+          nnz++;
+        }
+      }
+      pointers[i + 1] = nnz;
+    }
+    return new MatrixCsr(new CompressedSparseArrays(rows, cols, pointers, indices, values));
+  }
+
+  /** O(nnz(a) * columns of b): each stored a(i, k) scales row k of b into row i of the result. */
+  public static MatrixFlatArray multiply(MatrixCsr a, MatrixFlatArray b) {
+    CompressedSparseArrays sa = a.storage();
+    int rows = sa.majorSize;
+    int cols = b.getNumColumns();
+    double[] bData = b.data();
+    MatrixFlatArray result = new MatrixFlatArray(rows, cols);
+    double[] c = result.data();
+    for (int i = 0; i < rows; i++) {
+      int cRow = i * cols;
+      for (int p = sa.pointers[i]; p < sa.pointers[i + 1]; p++) {
+        double aik = sa.values[p];
+        int bRow = sa.indices[p] * cols;
+        for (int j = 0; j < cols; j++) {
+          c[cRow + j] += aik * bData[bRow + j];
+        }
+      }
+    }
+    return result;
+  }
+
+  /** O(rows of a * nnz(b)): each result cell is a dot product against a stored column of b. */
+  public static MatrixFlatArray multiply(MatrixFlatArray a, MatrixCsc b) {
+    CompressedSparseArrays sb = b.storage();
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = sb.majorSize;
+    double[] aData = a.data();
+    MatrixFlatArray result = new MatrixFlatArray(rows, cols);
+    double[] c = result.data();
+    for (int i = 0; i < rows; i++) {
+      int aRow = i * inner;
+      for (int j = 0; j < cols; j++) {
+        double value = 0;
+        for (int q = sb.pointers[j]; q < sb.pointers[j + 1]; q++) {
+          value += aData[aRow + sb.indices[q]] * sb.values[q];
+        }
+        c[i * cols + j] = value;
+      }
+    }
+    return result;
+  }
+
+  /** O(rows of a * (columns of a + nnz(b))): row i of a scales the stored rows of b. */
+  public static MatrixFlatArray multiply(MatrixFlatArray a, MatrixCsr b) {
+    CompressedSparseArrays sb = b.storage();
+    int rows = a.getNumRows();
+    int inner = a.getNumColumns();
+    int cols = sb.minorSize;
+    double[] aData = a.data();
+    MatrixFlatArray result = new MatrixFlatArray(rows, cols);
+    double[] c = result.data();
+    for (int i = 0; i < rows; i++) {
+      int cRow = i * cols;
+      for (int k = 0; k < inner; k++) {
+        double aik = aData[i * inner + k];
+        if (aik == 0.0) {
+          continue;
+        }
+        for (int q = sb.pointers[k]; q < sb.pointers[k + 1]; q++) {
+          c[cRow + sb.indices[q]] += aik * sb.values[q];
+        }
+      }
+    }
+    return result;
+  }
+}
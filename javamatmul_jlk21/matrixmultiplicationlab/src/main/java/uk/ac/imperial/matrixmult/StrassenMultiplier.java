@@ -0,0 +1,164 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Winograd's variant of Strassen's algorithm for square row-major n x n blocks: 7 recursive
+ * half-size products and 15 additions per level instead of 8 products. Odd sizes are padded with
+ * a zero row and column for that level only. At or below the cutoff the classical tiled kernel
+ * takes over, since the extra additions cost more than they save on small blocks.
+ *
+ * <p>The result is less accurate than the classical product. Higham (Accuracy and Stability of
+ * Numerical Algorithms, 2nd ed., section 23.2.2) bounds the error of each cell by
+ * {@code (18^l * (n0^2 + 6 * n0) - 6n) * u * max|A| * max|B|} for l levels of recursion down to
+ * n0 x n0 leaves and unit roundoff u, against {@code n^2 * u * max|A| * max|B|} for the classical
+ * product; {@link #errorGrowth} computes the constant.
+ */
+public class StrassenMultiplier extends RecursiveTask<double[]> {
+  public static final int DEFAULT_CUTOFF = 256;
+
+  private final double[] a;
+  private final double[] b;
+  private final int n;
+  private final int cutoff;
+
+  public StrassenMultiplier(double[] a, double[] b, int n, int cutoff) {
+    if (cutoff <= 0) {
+      throw new IllegalArgumentException("Cutoff must be positive");
+    }
+    this.a = a;
+    this.b = b;
+    this.n = n;
+    this.cutoff = cutoff;
+  }
+
+  @Override
+  protected double[] compute() {
+    if (n <= cutoff) {
+      double[] c = new double[n * n];
+      MatrixBlockMultiplier.multiplyRows(a, b, c, n, n, 0, n);
+      return c;
+    }
+    if (n % 2 != 0) {
+      double[] product = new StrassenMultiplier(pad(a, n), pad(b, n), n + 1, cutoff).compute();
+      return crop(product, n + 1);
+    }
+
+    int h = n / 2;
+    double[] a11 = quadrant(a, 0, 0);
+    double[] a12 = quadrant(a, 0, h);
+    double[] a21 = quadrant(a, h, 0);
+    double[] a22 = quadrant(a, h, h);
+    double[] b11 = quadrant(b, 0, 0);
+    double[] b12 = quadrant(b, 0, h);
+    double[] b21 = quadrant(b, h, 0);
+    double[] b22 = quadrant(b, h, h);
+
+    double[] s1 = add(a21, a22);
+    double[] s2 = subtract(s1, a11);
+    double[] s3 = subtract(a11, a21);
+    double[] s4 = subtract(a12, s2);
+    double[] t1 = subtract(b12, b11);
+    double[] t2 = subtract(b22, t1);
+    double[] t3 = subtract(b22, b12);
+    double[] t4 = subtract(t2, b21);
+
+    StrassenMultiplier[] products = {
+      new StrassenMultiplier(a11, b11, h, cutoff),
+      new StrassenMultiplier(a12, b21, h, cutoff),
+      new StrassenMultiplier(s4, b22, h, cutoff),
+      new StrassenMultiplier(a22, t4, h, cutoff),
+      new StrassenMultiplier(s1, t1, h, cutoff),
+      new StrassenMultiplier(s2, t2, h, cutoff),
+      new StrassenMultiplier(s3, t3, h, cutoff)
+    };
+    invokeAll(products);
+    double[] m1 = products[0].join();
+    double[] m2 = products[1].join();
+    double[] m3 = products[2].join();
+    double[] m4 = products[3].join();
+    double[] m5 = products[4].join();
+    double[] m6 = products[5].join();
+    double[] m7 = products[6].join();
+
+    double[] u2 = add(m1, m6);
+    double[] u3 = add(u2, m7);
+    double[] u4 = add(u2, m5);
+
+    double[] c = new double[n * n];
+    place(c, add(m1, m2), 0, 0);
+    place(c, add(u4, m3), 0, h);
+    place(c, subtract(u3, m4), h, 0);
+    place(c, add(u3, m5), h, h);
+    return c;
+  }
+
+  /**
+   * The constant in Higham's error bound for this algorithm on a * b with the given cutoff, which
+   * is the classical n^2 when the classical kernel would be used instead.
+   */
+  public static double errorGrowth(Matrix a, Matrix b, int cutoff) {
+    int n = a.getNumRows();
+    if (n != a.getNumColumns() || n != b.getNumColumns() || n <= cutoff) {
+      double inner = a.getNumColumns();
+      return inner * inner;
+    }
+    int levels = 0;
+    int leaf = n;
+    while (leaf > cutoff) {
+      leaf = (leaf + 1) / 2;
+      levels++;
+    }
+    return Math.pow(18, levels) * ((double) leaf * leaf + 6.0 * leaf) - 6.0 * n;
+  }
+
+  private double[] quadrant(double[] m, int rowOffset, int colOffset) {
+    int h = n / 2;
+    double[] q = new double[h * h];
+    for (int row = 0; row < h; row++) {
+      System.arraycopy(m, (rowOffset + row) * n + colOffset, q, row * h, h);
+    }
+    return q;
+  }
+
+  private void place(double[] c, double[] q, int rowOffset, int colOffset) {
+    int h = n / 2;
+    for (int row = 0; row < h; row++) {
+      System.arraycopy(q, row * h, c, (rowOffset + row) * n + colOffset, h);
+    }
+  }
+
+  private static double[] add(double[] x, double[] y) {
+    double[] sum = new double[x.length];
+    for (int i = 0; i < x.length; i++) {
+      sum[i] = x[i] + y[i];
+    }
+    return sum;
+  }
+
+  private static double[] subtract(double[] x, double[] y) {
+    double[] difference = new double[x.length];
+    for (int i = 0; i < x.length; i++) {
+      difference[i] = x[i] - y[i];
+    }
+    return difference;
+  }
+
+  /** Copies an n x n block into the top left of a zeroed (n + 1) x (n + 1) block. */
+  private static double[] pad(double[] m, int n) {
+    double[] padded = new double[(n + 1) * (n + 1)];
+    for (int row = 0; row < n; row++) {
+      System.arraycopy(m, row * n, padded, row * (n + 1), n);
+    }
+    return padded;
+  }
+
+  /** Drops the last row and column of an n x n block. */
+  private static double[] crop(double[] m, int n) {
+    double[] cropped = new double[(n - 1) * (n - 1)];
+    for (int row = 0; row < n - 1; row++) {
+      System.arraycopy(m, row * n, cropped, row * (n - 1), n - 1);
+    }
+    return cropped;
+  }
+}
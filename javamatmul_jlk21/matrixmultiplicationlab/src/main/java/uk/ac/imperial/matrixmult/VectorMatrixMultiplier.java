@@ -0,0 +1,39 @@
+package uk.ac.imperial.matrixmult;
+
+/**
+ * Chooses between the SIMD kernel in {@link DoubleVectorKernel} and the scalar tiled kernel. The
+ * Vector API is still incubating, so the JVM only resolves it when started with
+ * {@code --add-modules=jdk.incubator.vector}; without it, or when the preferred species holds a
+ * single double, the scalar kernel is used instead.
+ */
+public class VectorMatrixMultiplier {
+
+  private static final boolean VECTOR_API_USABLE = vectorApiUsable();
+
+  private static boolean vectorApiUsable() {
+    if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      return false;
+    }
+    try {
+      return DoubleVectorKernel.laneCount() > 1;
+    } catch (LinkageError e) {
+      return false;
+    }
+  }
+
+  public static boolean isVectorized() {
+    return VECTOR_API_USABLE;
+  }
+
+  /** The engine name {@link #kernel()} reports in {@link MultiplyMetrics}. */
+  static String engineName() {
+    return VECTOR_API_USABLE ? MultiplyStrategy.VECTORIZED.name() : MultiplyStrategy.BLOCKED.name();
+  }
+
+  static RowBandKernel kernel() {
+    if (VECTOR_API_USABLE) {
+      return DoubleVectorKernel::multiplyRows;
+    }
+    return MatrixBlockMultiplier::multiplyRows;
+  }
+}
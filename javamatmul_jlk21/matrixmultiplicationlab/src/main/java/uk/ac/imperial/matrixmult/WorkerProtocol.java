@@ -0,0 +1,79 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format between {@link DistributedMultiplier} and {@link MatrixWorkerServer}. Every
+ * request is an opcode byte followed by its body, and the worker answers with a status byte. On
+ * {@link #ERROR} the status is followed by a UTF message. Integers and doubles are big-endian, as
+ * DataOutputStream writes them.
+ *
+ * <ul>
+ *   <li>{@link #STEP}: a count of A tiles, each as its block row then a tile, and the same for B
+ *       tiles by block column. The worker adds A(i) * B(j) into its C(i, j) for every pair it was
+ *       sent, and answers {@link #OK}.
+ *   <li>{@link #GATHER}: the worker answers {@link #OK}, a count, then each C tile as its block
+ *       row, block column and tile, and forgets them.
+ * </ul>
+ *
+ * <p>A tile is its row count, column count and then its values in row-major order. Tiles must
+ * be non-empty and hold at most {@link #MAX_TILE_DOUBLES} values, so that a peer cannot make the
+ * reader allocate more than that for one tile.
+ */
+class WorkerProtocol {
+  static final byte STEP = 1;
+  static final byte GATHER = 2;
+
+  static final byte OK = 0;
+  static final byte ERROR = 1;
+
+  /** 4096x4096 doubles, 128 MB. */
+  static final int MAX_TILE_DOUBLES = 1 << 24;
+
+  private static final int CHUNK_DOUBLES = 8192;
+
+  static void writeTile(DataOutputStream out, MatrixFlatArray tile) throws IOException {
+    out.writeInt(tile.getNumRows());
+    out.writeInt(tile.getNumColumns());
+    double[] data = tile.data();
+    ByteBuffer buffer = ByteBuffer.allocate(Math.min(data.length, CHUNK_DOUBLES) * Double.BYTES);
+    for (int start = 0; start < data.length; start += CHUNK_DOUBLES) {
+      int length = Math.min(CHUNK_DOUBLES, data.length - start);
+      buffer.clear();
+      buffer.asDoubleBuffer().put(data, start, length);
+      out.write(buffer.array(), 0, length * Double.BYTES);
+    }
+  }
+
+  static MatrixFlatArray readTile(DataInputStream in) throws IOException {
+    int rows = in.readInt();
+    int cols = in.readInt();
+    if (rows <= 0 || cols <= 0 || (long) rows * cols > MAX_TILE_DOUBLES) {
+      throw new IOException("Bad tile size " + rows + "x" + cols);
+    }
+    double[] data = new double[rows * cols];
+    byte[] bytes = new byte[Math.min(data.length, CHUNK_DOUBLES) * Double.BYTES];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    for (int start = 0; start < data.length; start += CHUNK_DOUBLES) {
+      int length = Math.min(CHUNK_DOUBLES, data.length - start);
+      in.readFully(bytes, 0, length * Double.BYTES);
+      buffer.clear();
+      buffer.asDoubleBuffer().get(data, start, length);
+    }
+    return new MatrixFlatArray(rows, cols, data);
+  }
+
+  /** Reads a status byte, turning a worker's error report into an IOException. */
+  static void readStatus(DataInputStream in) throws IOException {
+    byte status = in.readByte();
+    if (status == ERROR) {
+      throw new IOException("Worker failed: " + in.readUTF());
+    }
+    if (status != OK) {
+      throw new IOException("Unexpected worker status " + status);
+    }
+  }
+}
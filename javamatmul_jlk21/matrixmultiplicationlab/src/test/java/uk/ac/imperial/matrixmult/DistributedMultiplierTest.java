@@ -0,0 +1,141 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DistributedMultiplierTest {
+
+  private static List<InetSocketAddress> addresses(List<MatrixWorkerServer> servers) {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (MatrixWorkerServer server : servers) {
+      addresses.add(new InetSocketAddress("localhost", server.getPort()));
+    }
+    return addresses;
+  }
+
+  private static void closeAll(List<MatrixWorkerServer> servers) throws Exception {
+    for (MatrixWorkerServer server : servers) {
+      server.close();
+    }
+  }
+
+  @Test
+  public void inProcessWorkersCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(157, 203, 34286073);
+    Matrix b = MatrixBenchmark.create(203, 131, 92830465);
+    Matrix expected = MatrixMultiplier.multiplyBlocked(a, b);
+
+    List<MatrixWorkerServer> servers = new ArrayList<>();
+    try {
+      for (int i = 0; i < 4; i++) {
+        servers.add(new MatrixWorkerServer(0));
+      }
+      DistributedMultiplier multiplier = new DistributedMultiplier(addresses(servers), 32);
+      Assert.assertEquals(2, multiplier.getGridRows());
+      Assert.assertEquals(2, multiplier.getGridColumns());
+      Assert.assertTrue(multiplier.multiply(a, b).equals(expected, 0.000001));
+      // Connections are per product, so the same workers can be used again
+      Assert.assertTrue(multiplier.multiply(a, b).equals(expected, 0.000001));
+    } finally {
+      closeAll(servers);
+    }
+  }
+
+  @Test
+  public void moreWorkersThanTilesCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(10, 7, 1);
+    Matrix b = MatrixBenchmark.create(7, 12, 2);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    List<MatrixWorkerServer> servers = new ArrayList<>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        servers.add(new MatrixWorkerServer(0));
+      }
+      Matrix actual = MatrixMultiplier.multiplyDistributed(a, b, addresses(servers));
+      Assert.assertTrue(actual.equals(expected, 0.000001));
+    } finally {
+      closeAll(servers);
+    }
+  }
+
+  @Test
+  public void workerProcessesCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(90, 70, 1);
+    Matrix b = MatrixBenchmark.create(70, 80, 2);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    List<Process> processes = new ArrayList<>();
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    try {
+      for (int i = 0; i < 2; i++) {
+        Process process =
+            new ProcessBuilder(
+                    java,
+                    "-cp",
+                    System.getProperty("java.class.path"),
+                    MatrixWorkerServer.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        processes.add(process);
+        BufferedReader out =
+            new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        Assert.assertNotNull(line);
+        int port = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+        addresses.add(new InetSocketAddress("localhost", port));
+      }
+      Matrix actual = new DistributedMultiplier(addresses, 16).multiply(a, b);
+      Assert.assertTrue(actual.equals(expected, 0.000001));
+    } finally {
+      for (Process process : processes) {
+        process.destroy();
+      }
+    }
+  }
+
+  private static DataInputStream tileHeader(int rows, int cols) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(rows);
+    out.writeInt(cols);
+    return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+  }
+
+  @Test(expected = IOException.class)
+  public void emptyTileRejectedCheck() throws Exception {
+    WorkerProtocol.readTile(tileHeader(0, 4));
+  }
+
+  @Test(expected = IOException.class)
+  public void oversizedTileRejectedCheck() throws Exception {
+    // Refused from the header alone, before the 16 GB it announces is allocated
+    WorkerProtocol.readTile(tileHeader(1 << 16, 1 << 15));
+  }
+
+  @Test(expected = IOException.class)
+  public void unreachableWorkerCheck() throws Exception {
+    MatrixWorkerServer server = new MatrixWorkerServer(0);
+    int port = server.getPort();
+    server.close();
+
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    addresses.add(new InetSocketAddress("localhost", port));
+    new DistributedMultiplier(addresses)
+        .multiply(MatrixBenchmark.create(4, 4, 1), MatrixBenchmark.create(4, 4, 2));
+  }
+}
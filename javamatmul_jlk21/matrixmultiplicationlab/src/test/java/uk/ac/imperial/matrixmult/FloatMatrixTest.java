@@ -0,0 +1,63 @@
+package uk.ac.imperial.matrixmult;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FloatMatrixTest {
+
+  private static final double FLOAT_UNIT_ROUNDOFF = Math.ulp(1.0f) / 2;
+
+  @Test
+  public void conversionCheck() {
+    Matrix source = MatrixBenchmark.create(13, 17, 34286073);
+
+    FloatMatrixFlatArray single = FloatMatrixFlatArray.of(source);
+
+    // Rounding to float loses at most half an ulp of each value
+    Assert.assertTrue(single.toDouble().equals(source, FLOAT_UNIT_ROUNDOFF));
+    Assert.assertFalse(single.toDouble().equals(source, 0.0));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void columnIndexExceptionChk() {
+    new FloatMatrixFlatArray(10, 9).set(0, 9, 1.0f);
+  }
+
+  @Test
+  public void precisionLossBoundedCheck() throws Exception {
+    // Small products run sequentially and large ones in bands, so cover both
+    int[][] shapes = {{5, 7, 3}, {157, 203, 131}};
+    for (int[] shape : shapes) {
+      Matrix a = MatrixBenchmark.create(shape[0], shape[1], 34286073);
+      Matrix b = MatrixBenchmark.create(shape[1], shape[2], 92830465);
+      Matrix expected = MatrixMultiplier.multiply(a, b);
+
+      FloatMatrixFlatArray product =
+          FloatMatrixMultiplier.multiply(FloatMatrixFlatArray.of(a), FloatMatrixFlatArray.of(b));
+
+      // Inputs are in [0, 1): rounding them costs up to 2u per product term and the float sums
+      // up to n^2 u in total, relative to the largest possible cell value n
+      int n = shape[1];
+      double delta = (2.0 * n + (double) n * n) * FLOAT_UNIT_ROUNDOFF;
+      Assert.assertTrue(product.toDouble().equals(expected, delta));
+    }
+  }
+
+  @Test
+  public void typicalPrecisionCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(64, 256, 71539248);
+    Matrix b = MatrixBenchmark.create(256, 64, 18273645);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    FloatMatrixFlatArray product =
+        FloatMatrixMultiplier.multiply(FloatMatrixFlatArray.of(a), FloatMatrixFlatArray.of(b));
+
+    // Rounding errors mostly cancel, so in practice the relative error is far below the bound
+    for (int row = 0; row < 64; row++) {
+      for (int col = 0; col < 64; col++) {
+        double exact = expected.get(row, col);
+        Assert.assertEquals(exact, product.get(row, col), exact * 1e-5);
+      }
+    }
+  }
+}
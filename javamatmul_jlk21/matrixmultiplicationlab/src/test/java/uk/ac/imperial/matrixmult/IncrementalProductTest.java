@@ -0,0 +1,90 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IncrementalProductTest {
+
+  private static double[] values(int length, long seed) {
+    Random rnd = new Random(seed);
+    double[] values = new double[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = rnd.nextDouble();
+    }
+    return values;
+  }
+
+  private static void assertUpToDate(IncrementalProduct product) throws Exception {
+    Matrix expected = MatrixMultiplier.multiply(product.getA(), product.getB());
+    Assert.assertTrue(product.getProduct().equals(expected, 0.000001));
+  }
+
+  @Test
+  public void rowAndColumnPatchesCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(47, 33, 1);
+    Matrix b = MatrixBenchmark.create(33, 59, 2);
+    IncrementalProduct product = new IncrementalProduct(a, b);
+    assertUpToDate(product);
+
+    product.setRowOfA(5, values(33, 3));
+    assertUpToDate(product);
+    product.setColumnOfB(58, values(33, 4));
+    assertUpToDate(product);
+    product.setColumnOfA(0, values(47, 5));
+    assertUpToDate(product);
+    product.setRowOfB(32, values(59, 6));
+    assertUpToDate(product);
+  }
+
+  @Test
+  public void rankUpdatesCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(40, 30, 1);
+    Matrix b = MatrixBenchmark.create(30, 20, 2);
+    IncrementalProduct product = new IncrementalProduct(a, b);
+
+    product.updateA(MatrixBenchmark.create(40, 3, 3), MatrixBenchmark.create(3, 30, 4));
+    assertUpToDate(product);
+    product.updateB(MatrixBenchmark.create(30, 2, 5), MatrixBenchmark.create(2, 20, 6));
+    assertUpToDate(product);
+  }
+
+  @Test
+  public void inputsAreCopiedCheck() throws Exception {
+    Matrix a = new MatrixFlatArray(6, 6);
+    Matrix b = MatrixBenchmark.create(6, 6, 2);
+    IncrementalProduct product = new IncrementalProduct(a, b);
+
+    product.setRowOfA(0, values(6, 3));
+
+    Assert.assertEquals(0.0, a.get(0, 0), 0.0);
+    assertUpToDate(product);
+  }
+
+  @Test
+  public void productStaysLiveAcrossRecomputeCheck() throws Exception {
+    IncrementalProduct product =
+        new IncrementalProduct(MatrixBenchmark.create(9, 7, 1), MatrixBenchmark.create(7, 8, 2));
+    Matrix live = product.getProduct();
+
+    product.setColumnOfA(3, values(9, 3));
+    product.recompute();
+
+    Assert.assertSame(live, product.getProduct());
+    assertUpToDate(product);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void rowOutOfBoundsCheck() throws Exception {
+    IncrementalProduct product =
+        new IncrementalProduct(MatrixBenchmark.create(4, 4, 1), MatrixBenchmark.create(4, 4, 2));
+    product.setRowOfA(4, values(4, 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void wrongLengthCheck() throws Exception {
+    IncrementalProduct product =
+        new IncrementalProduct(MatrixBenchmark.create(4, 4, 1), MatrixBenchmark.create(4, 4, 2));
+    product.setColumnOfB(0, values(5, 3));
+  }
+}
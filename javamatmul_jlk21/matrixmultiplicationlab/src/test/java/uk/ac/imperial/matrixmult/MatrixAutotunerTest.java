@@ -0,0 +1,94 @@
+package uk.ac.imperial.matrixmult;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MatrixAutotunerTest {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void everyCandidateMultipliesCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(37, 29, 1);
+    Matrix b = MatrixBenchmark.create(29, 41, 2);
+    Matrix sparseA = MatrixCsr.of(MatrixBenchmark.create(37, 29, 3, true, 10));
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+    Matrix expectedSparse = MatrixMultiplier.multiply(sparseA, b);
+
+    MatrixAutotuner tuner = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    for (MatrixAutotuner.Candidate candidate : MatrixAutotuner.Candidate.values()) {
+      for (int tileSize : MatrixAutotuner.TILE_SIZES) {
+        MatrixAutotuner.Choice choice = new MatrixAutotuner.Choice(candidate, tileSize);
+        Assert.assertTrue(tuner.multiply(choice, a, b).equals(expected, 0.000001));
+        Assert.assertTrue(tuner.multiply(choice, sparseA, b).equals(expectedSparse, 0.000001));
+      }
+    }
+  }
+
+  @Test
+  public void tunedChoiceIsUsedAndPersistedCheck() throws Exception {
+    MatrixAutotuner tuner = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    MatrixAutotuner.Choice choice =
+        tuner.tune(MatrixAutotuner.SizeClass.SMALL, MatrixAutotuner.Aspect.SQUARE, false);
+
+    Matrix a = MatrixBenchmark.create(30, 30, 1);
+    Matrix b = MatrixBenchmark.create(30, 30, 2);
+    Assert.assertEquals(choice, tuner.choose(a, b));
+    Assert.assertTrue(tuner.multiply(a, b).equals(MatrixMultiplier.multiply(a, b), 0.000001));
+
+    Path file = folder.getRoot().toPath().resolve("tuning.properties");
+    tuner.save(file);
+    MatrixAutotuner loaded = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    Assert.assertTrue(loaded.load(file));
+    Assert.assertEquals(tuner.getChoices(), loaded.getChoices());
+  }
+
+  @Test
+  public void untunedGroupsUseDefaultsCheck() throws Exception {
+    MatrixAutotuner tuner = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    Matrix sparse = MatrixCsr.of(MatrixBenchmark.create(300, 300, 1, true, 100));
+    Matrix dense = MatrixBenchmark.create(300, 300, 2);
+
+    Assert.assertEquals(
+        MatrixAutotuner.Candidate.SPARSE, tuner.choose(sparse, dense).getCandidate());
+    Assert.assertNotEquals(
+        MatrixAutotuner.Candidate.SPARSE, tuner.choose(dense, dense).getCandidate());
+  }
+
+  @Test
+  public void fileFromOtherMachineIgnoredCheck() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("tuning.properties");
+    int processors = Runtime.getRuntime().availableProcessors() + 1;
+    Files.write(
+        file,
+        Arrays.asList("processors=" + processors, "small.square.dense=NAIVE"),
+        StandardCharsets.UTF_8);
+
+    MatrixAutotuner tuner = new MatrixAutotuner(MatrixMultiplierContext.shared());
+    Assert.assertFalse(tuner.load(file));
+    Assert.assertTrue(tuner.getChoices().isEmpty());
+    Assert.assertFalse(tuner.load(folder.getRoot().toPath().resolve("missing")));
+  }
+
+  @Test
+  public void choiceParseCheck() {
+    Assert.assertEquals(
+        new MatrixAutotuner.Choice(MatrixAutotuner.Candidate.BLOCKED, 32),
+        MatrixAutotuner.Choice.parse("BLOCKED:32"));
+    Assert.assertEquals(
+        new MatrixAutotuner.Choice(MatrixAutotuner.Candidate.FORK_JOIN),
+        MatrixAutotuner.Choice.parse("FORK_JOIN"));
+    Assert.assertEquals("BLOCKED:16", MatrixAutotuner.Choice.parse("BLOCKED:16").toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void badChoiceCheck() {
+    MatrixAutotuner.Choice.parse("BLOCKED:zero");
+  }
+}
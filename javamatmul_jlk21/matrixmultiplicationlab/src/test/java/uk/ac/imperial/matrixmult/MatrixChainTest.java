@@ -0,0 +1,75 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatrixChainTest {
+
+  private static List<Matrix> chain(int... dims) {
+    List<Matrix> matrices = new ArrayList<>();
+    for (int i = 0; i + 1 < dims.length; i++) {
+      matrices.add(MatrixBenchmark.create(dims[i], dims[i + 1], 34286073 + i));
+    }
+    return matrices;
+  }
+
+  @Test
+  public void textbookPlanCheck() {
+    // The worked example from Cormen et al., Introduction to Algorithms, section 15.2
+    MatrixChain plan = MatrixChain.plan(chain(30, 35, 15, 5, 10, 20, 25));
+
+    Assert.assertEquals(15125, plan.getCost());
+    Assert.assertEquals("((A0 (A1 A2)) ((A3 A4) A5))", plan.getParenthesization());
+  }
+
+  @Test
+  public void singleMatrixCheck() throws Exception {
+    Matrix m = MatrixBenchmark.create(3, 4, 1);
+    MatrixChain plan = MatrixChain.plan(Arrays.asList(m));
+
+    Assert.assertEquals(0, plan.getCost());
+    Assert.assertSame(m, plan.multiply());
+  }
+
+  @Test
+  public void productMatchesLeftToRightCheck() throws Exception {
+    List<Matrix> matrices = chain(40, 3, 70, 5, 90, 8, 60, 2, 50);
+
+    Matrix expected = matrices.get(0);
+    for (int i = 1; i < matrices.size(); i++) {
+      expected = MatrixMultiplier.multiply(expected, matrices.get(i));
+    }
+
+    Matrix actual = MatrixMultiplier.multiplyChain(matrices.toArray(new Matrix[0]));
+
+    Assert.assertTrue(actual.equals(expected, 0.000001));
+  }
+
+  @Test
+  public void inputsUntouchedCheck() throws Exception {
+    List<Matrix> matrices = chain(10, 20, 10, 20, 10, 20);
+    List<Matrix> copies = new ArrayList<>();
+    for (Matrix m : matrices) {
+      double[][] rows = new double[m.getNumRows()][];
+      for (int row = 0; row < rows.length; row++) {
+        rows[row] = m.getRow(row);
+      }
+      copies.add(MatrixBuilder.build(rows));
+    }
+
+    MatrixChain.plan(matrices).multiply();
+
+    for (int i = 0; i < matrices.size(); i++) {
+      Assert.assertTrue(matrices.get(i).equals(copies.get(i), 0.0));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void mismatchedDimensionsCheck() {
+    MatrixChain.plan(
+        Arrays.asList(MatrixBenchmark.create(3, 4, 1), MatrixBenchmark.create(5, 6, 2)));
+  }
+}
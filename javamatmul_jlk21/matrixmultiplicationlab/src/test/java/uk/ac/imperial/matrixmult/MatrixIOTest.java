@@ -0,0 +1,71 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MatrixIOTest {
+
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void roundTripCheck() throws Exception {
+    Matrix source = MatrixBenchmark.create(37, 23, 34286073);
+
+    for (MatrixIO.Layout layout : MatrixIO.Layout.values()) {
+      Path file = tmpFolder.newFile().toPath();
+      MatrixIO.write(source, file, layout);
+
+      Assert.assertEquals(MatrixIO.HEADER_BYTES + 37 * 23 * 8, Files.size(file));
+      Assert.assertEquals(layout, MatrixIO.readHeader(file).layout);
+      Assert.assertTrue(MatrixIO.read(file).equals(source, 0.0));
+    }
+  }
+
+  @Test
+  public void roundTripLargerThanBufferCheck() throws Exception {
+    Matrix source = MatrixBenchmark.create(300, 500, 92830465);
+    Path file = tmpFolder.newFile().toPath();
+
+    MatrixIO.write(source, file);
+
+    Assert.assertTrue(MatrixIO.read(file).equals(source, 0.0));
+  }
+
+  @Test
+  public void mapWithoutCopyCheck() throws Exception {
+    Matrix source = MatrixBenchmark.create(19, 11, 71539248);
+    Path file = tmpFolder.newFile().toPath();
+    MatrixIO.write(source, file);
+
+    try (MatrixMapped mapped = MatrixIO.map(file, true)) {
+      Assert.assertTrue(mapped.equals(source, 0.0));
+      mapped.set(18, 10, 42.0);
+    }
+
+    Assert.assertEquals(42.0, MatrixIO.read(file).get(18, 10), 0.0);
+  }
+
+  @Test
+  public void outOfCoreResultIsReadableCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(40, 30, 34286073);
+    Matrix b = MatrixBenchmark.create(30, 20, 92830465);
+    Path file = tmpFolder.newFile().toPath();
+
+    MatrixMultiplier.multiplyOutOfCore(a, b, file).close();
+
+    Assert.assertTrue(MatrixIO.read(file).equals(MatrixMultiplier.multiply(a, b), 0.000001));
+  }
+
+  @Test(expected = IOException.class)
+  public void rejectsOtherFilesCheck() throws Exception {
+    Path file = tmpFolder.newFile().toPath();
+    Files.write(file, new byte[64]);
+
+    MatrixIO.read(file);
+  }
+}
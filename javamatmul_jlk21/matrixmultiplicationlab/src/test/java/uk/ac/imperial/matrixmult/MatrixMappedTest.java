@@ -0,0 +1,81 @@
+package uk.ac.imperial.matrixmult;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MatrixMappedTest {
+
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private MatrixMapped copyToFile(Matrix source, File file) throws Exception {
+    MatrixMapped mapped =
+        MatrixMapped.create(file.toPath(), source.getNumRows(), source.getNumColumns());
+    for (int row = 0; row < source.getNumRows(); row++) {
+      mapped.writeBlock(row, 0, 1, source.getNumColumns(), source.getRow(row));
+    }
+    return mapped;
+  }
+
+  @Test
+  public void persistsAcrossReopenCheck() throws Exception {
+    File file = tmpFolder.newFile();
+    Matrix source = MatrixBenchmark.create(13, 17, 34286073);
+    copyToFile(source, file).close();
+
+    try (MatrixMapped reopened = MatrixMapped.open(file.toPath(), 13, 17, false)) {
+      Assert.assertTrue(reopened.equals(source, 0.0));
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void columnIndexExceptionChk() throws Exception {
+    try (MatrixMapped m = MatrixMapped.create(tmpFolder.newFile().toPath(), 10, 9)) {
+      m.set(0, 9, 1.0);
+    }
+  }
+
+  @Test
+  public void blocksSpanChunksCheck() throws Exception {
+    // Chunks of 10 doubles split most rows and blocks of this 7 x 9 matrix
+    Matrix source = MatrixBenchmark.create(7, 9, 92830465);
+    File file = tmpFolder.newFile();
+    copyToFile(source, file).close();
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MatrixMapped chunked = new MatrixMapped(channel, 0, 7, 9, false, 10);
+      Assert.assertTrue(chunked.equals(source, 0.0));
+
+      double[] block = new double[4 * 5];
+      chunked.readBlock(2, 3, 4, 5, block);
+      for (int r = 0; r < 4; r++) {
+        for (int c = 0; c < 5; c++) {
+          Assert.assertEquals(source.get(2 + r, 3 + c), block[r * 5 + c], 0.0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void outOfCoreMatchesInMemoryCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(157, 203, 34286073);
+    Matrix b = MatrixBenchmark.create(203, 131, 92830465);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    try (MatrixMapped mappedA = copyToFile(a, tmpFolder.newFile());
+        MatrixMapped mappedB = copyToFile(b, tmpFolder.newFile());
+        MatrixMapped result = MatrixMapped.create(tmpFolder.newFile().toPath(), 157, 131)) {
+      OutOfCoreMultiplier.multiply(mappedA, mappedB, result, 32);
+      Assert.assertTrue(result.equals(expected, 0.000001));
+    }
+
+    try (MatrixMapped result =
+        MatrixMultiplier.multiplyOutOfCore(a, b, tmpFolder.newFile().toPath())) {
+      Assert.assertTrue(result.equals(expected, 0.000001));
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package uk.ac.imperial.matrixmult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MatrixMultiplierContextTest {
+
+  @Test
+  public void reusedAcrossCallsCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(157, 203, 34286073);
+    Matrix b = MatrixBenchmark.create(203, 131, 92830465);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(3)) {
+      for (int call = 0; call < 5; call++) {
+        Assert.assertTrue(context.multiply(a, b).equals(expected, 0.000001));
+      }
+    }
+  }
+
+  @Test
+  public void asyncCheck() throws Exception {
+    List<Matrix> as = new ArrayList<>();
+    List<Matrix> bs = new ArrayList<>();
+    List<CompletableFuture<Matrix>> products = new ArrayList<>();
+
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(2, 0)) {
+      for (int i = 0; i < 8; i++) {
+        as.add(MatrixBenchmark.create(20 + i, 30, i));
+        bs.add(MatrixBenchmark.create(30, 40 - i, 100 + i));
+        products.add(context.multiplyAsync(as.get(i), bs.get(i)));
+      }
+      for (int i = 0; i < 8; i++) {
+        Matrix expected = MatrixMultiplier.multiply(as.get(i), bs.get(i));
+        Assert.assertTrue(products.get(i).get().equals(expected, 0.000001));
+      }
+    }
+  }
+
+  @Test
+  public void smallProductsRunOnCallerCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(4, 4, 1);
+    Matrix b = MatrixBenchmark.create(4, 4, 2);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    MatrixMultiplierContext context = new MatrixMultiplierContext(1);
+    context.close();
+
+    // The pool is gone, so only the sequential path can still work
+    Assert.assertTrue(context.multiply(a, b).equals(expected, 0.000001));
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void closedContextRejectsWorkCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(100, 100, 1);
+    MatrixMultiplierContext context = new MatrixMultiplierContext(1);
+    context.close();
+    context.multiplyAsync(a, a);
+  }
+
+  @Test
+  public void sharedContextIgnoresCloseCheck() throws Exception {
+    MatrixMultiplierContext.shared().close();
+
+    Matrix a = MatrixBenchmark.create(100, 100, 1);
+    Assert.assertTrue(
+        MatrixMultiplier.multiplyBlocked(a, a).equals(MatrixMultiplier.multiply(a, a), 0.000001));
+  }
+
+  @Test
+  public void batchOfPairsCheck() throws Exception {
+    List<Matrix> as = new ArrayList<>();
+    List<Matrix> bs = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      as.add(MatrixBenchmark.create(16 + i % 5, 32, i));
+      bs.add(MatrixBenchmark.create(32, 64 - i % 7, 1000 + i));
+    }
+    // 10% dense is above MatrixBuilder's threshold, so force CSR to exercise the sparse branch
+    as.set(3, MatrixCsr.of(MatrixBenchmark.create(20, 32, 3, true, 10)));
+    Assert.assertTrue(as.get(3) instanceof SparseMatrix);
+
+    List<Matrix> products = MatrixMultiplier.multiplyBatch(as, bs);
+
+    Assert.assertEquals(50, products.size());
+    for (int i = 0; i < 50; i++) {
+      Matrix expected = MatrixMultiplier.multiply(MatrixFlatArray.of(as.get(i)), bs.get(i));
+      Assert.assertTrue(products.get(i).equals(expected, 0.000001));
+    }
+  }
+
+  @Test
+  public void stridedBatchCheck() throws Exception {
+    MatrixBatch a = new MatrixBatch(37, 16, 24);
+    MatrixBatch b = new MatrixBatch(37, 24, 8);
+    for (int i = 0; i < 37; i++) {
+      a.setMatrix(i, MatrixBenchmark.create(16, 24, i));
+      b.setMatrix(i, MatrixBenchmark.create(24, 8, 1000 + i));
+    }
+
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(4)) {
+      MatrixBatch products = context.multiplyBatch(a, b);
+
+      for (int i = 0; i < 37; i++) {
+        Matrix expected = MatrixMultiplier.multiply(a.getMatrix(i), b.getMatrix(i));
+        Assert.assertTrue(products.getMatrix(i).equals(expected, 0.000001));
+      }
+    }
+  }
+}
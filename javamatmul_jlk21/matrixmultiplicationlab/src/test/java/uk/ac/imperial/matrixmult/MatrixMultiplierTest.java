@@ -1,5 +1,7 @@
 package uk.ac.imperial.matrixmult;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -101,4 +103,233 @@ public class MatrixMultiplierTest {
 
     Assert.assertTrue(res.equals(mc, 0.000001));
   }
+
+  @Test
+  public void blockedComputationCheck() throws Exception {
+    double[][] a = {
+      {1.0, 2.0, 3.0},
+      {4.0, 5.0, 6.0}
+    };
+
+    double[][] b = {
+      {7.0, 8.0},
+      {9.0, 10.0},
+      {11.0, 12.0}
+    };
+
+    double[][] c = {
+      {58.0, 64.0},
+      {139.0, 154.0}
+    };
+
+    Matrix res = MatrixMultiplier.multiplyBlocked(MatrixBuilder.build(a), MatrixBuilder.build(b));
+
+    Assert.assertTrue(res.equals(MatrixBuilder.build(c), 0.000001));
+  }
+
+  @Test
+  public void blockedMatchesCellCheck() throws Exception {
+    // Sizes are deliberately not multiples of the tile size
+    Matrix a = MatrixBenchmark.create(157, 203, 34286073);
+    Matrix b = MatrixBenchmark.create(203, 131, 92830465);
+
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+    Matrix actual = MatrixMultiplier.multiplyBlocked(a, b);
+
+    Assert.assertTrue(actual.equals(expected, 0.000001));
+  }
+
+  @Test
+  public void vectorizedMatchesCellCheck() throws Exception {
+    // Odd column counts exercise the scalar tail after the vector loop
+    Matrix a = MatrixBenchmark.create(131, 97, 34286073);
+    Matrix b = MatrixBenchmark.create(97, 75, 92830465);
+
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+    Matrix actual = MatrixMultiplier.multiplyVectorized(a, b);
+
+    Assert.assertTrue(actual.equals(expected, 0.000001));
+  }
+
+  @Test
+  public void packedMatchesCellCheck() throws Exception {
+    // Crosses the MC, KC and NC block edges and leaves partial 4 x 8 tiles
+    Matrix a = MatrixBenchmark.create(157, 523, 34286073);
+    Matrix b = MatrixBenchmark.create(523, 531, 92830465);
+
+    Matrix expected = MatrixMultiplier.multiplyBlocked(a, b);
+    Matrix actual = MatrixMultiplier.multiplyPacked(a, b);
+
+    Assert.assertTrue(actual.equals(expected, 0.000001));
+  }
+
+  @Test
+  public void packedTinyCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(3, 5, 1);
+    Matrix b = MatrixBenchmark.create(5, 2, 2);
+
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    Assert.assertTrue(MatrixMultiplier.multiplyPacked(a, b).equals(expected, 0.000001));
+  }
+
+  @Test
+  public void forkJoinMatchesCellCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(157, 203, 34286073);
+    Matrix b = MatrixBenchmark.create(203, 131, 92830465);
+
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    for (int leafSize : new int[] {3, 7, 32, MatrixForkJoinMultiplier.DEFAULT_LEAF_SIZE, 500}) {
+      Matrix actual = MatrixMultiplier.multiplyForkJoin(a, b, leafSize);
+      Assert.assertTrue(actual.equals(expected, 0.000001));
+    }
+  }
+
+  @Test
+  public void forkJoinInsideCallerPoolCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(90, 70, 34286073);
+    Matrix b = MatrixBenchmark.create(70, 110, 92830465);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      Matrix actual = pool.submit(() -> MatrixMultiplier.multiplyForkJoin(a, b, 16)).get();
+      Assert.assertTrue(actual.equals(expected, 0.000001));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void strassenWithinErrorBoundCheck() throws Exception {
+    // 300 -> 150 -> 75, padded to 76 -> 38 -> 19 exercises padding at an inner level
+    int size = 300;
+    int cutoff = 32;
+    Matrix a = MatrixBenchmark.create(size, size, 34286073);
+    Matrix b = MatrixBenchmark.create(size, size, 92830465);
+
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+    Matrix actual = MatrixMultiplier.multiplyStrassen(a, b, cutoff);
+
+    double growth = StrassenMultiplier.errorGrowth(a, b, cutoff);
+    double delta =
+        (growth + size * size)
+            * MultiplyStrategy.UNIT_ROUNDOFF
+            * MultiplyStrategy.maxAbs(a)
+            * MultiplyStrategy.maxAbs(b);
+    Assert.assertTrue(actual.equals(expected, delta));
+    Assert.assertFalse(actual.equals(MatrixBenchmark.create(size, size, 1), delta));
+  }
+
+  @Test
+  public void strassenFallsBackForSmallOrRectangularCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(40, 30, 34286073);
+    Matrix b = MatrixBenchmark.create(30, 40, 92830465);
+
+    Assert.assertTrue(
+        MatrixMultiplier.multiplyStrassen(a, b, 8)
+            .equals(MatrixMultiplier.multiply(a, b), 0.000001));
+  }
+
+  @Test
+  public void strategiesWithinErrorBoundCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(300, 300, 34286073);
+    Matrix b = MatrixBenchmark.create(300, 300, 92830465);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+    double referenceBound = MultiplyStrategy.CELL.errorBound(a, b);
+
+    for (MultiplyStrategy strategy : MultiplyStrategy.values()) {
+      Matrix actual = MatrixMultiplier.multiply(a, b, strategy);
+      double delta = strategy.errorBound(a, b) + referenceBound;
+      Assert.assertTrue(strategy.name(), actual.equals(expected, delta));
+    }
+  }
+
+  @Test
+  public void gemmTransposeCombinationsCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(157, 203, 34286073);
+    Matrix b = MatrixBenchmark.create(203, 131, 92830465);
+    Matrix c0 = MatrixBenchmark.create(157, 131, 71539248);
+    Matrix ab = MatrixMultiplier.multiply(a, b);
+
+    for (boolean transposeA : new boolean[] {false, true}) {
+      for (boolean transposeB : new boolean[] {false, true}) {
+        // Both flat operands and nested ones that are copied for the call
+        for (MatrixLayout layout : MatrixLayout.values()) {
+          Matrix opA = copy(a, transposeA, layout);
+          Matrix opB = copy(b, transposeB, layout);
+          MatrixFlatArray c = (MatrixFlatArray) copy(c0, false, MatrixLayout.FLAT);
+
+          MatrixMultiplier.gemm(transposeA, transposeB, 2.0, opA, opB, -0.5, c);
+
+          for (int row = 0; row < 157; row++) {
+            for (int col = 0; col < 131; col++) {
+              double expected = 2.0 * ab.get(row, col) - 0.5 * c0.get(row, col);
+              Assert.assertEquals(expected, c.get(row, col), 0.000001);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void gemmAccumulatesRepeatedlyCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(20, 30, 34286073);
+    Matrix b = MatrixBenchmark.create(30, 10, 92830465);
+    MatrixFlatArray c = new MatrixFlatArray(20, 10);
+    c.set(0, 0, Double.NaN);
+
+    MatrixMultiplier.gemm(false, false, 1.0, a, b, 0.0, c);
+    MatrixMultiplier.gemm(false, false, 1.0, a, b, 1.0, c);
+
+    Matrix ab = MatrixMultiplier.multiply(a, b);
+    for (int row = 0; row < 20; row++) {
+      for (int col = 0; col < 10; col++) {
+        Assert.assertEquals(2 * ab.get(row, col), c.get(row, col), 0.000001);
+      }
+    }
+  }
+
+  @Test
+  public void gemmWithAliasedOutputCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(150, 150, 34286073);
+    Matrix b = MatrixBenchmark.create(150, 150, 92830465);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+    MatrixFlatArray c = MatrixFlatArray.of(a);
+
+    MatrixMultiplier.gemm(false, false, 1.0, c, b, 0.0, c);
+
+    Assert.assertTrue(c.equals(expected, 0.000001));
+  }
+
+  @Test
+  public void multiplyFromSharedWorkerCheck() throws Exception {
+    // Large enough to be split into cells, which a worker waiting on its own pool would deadlock
+    Matrix a = MatrixBenchmark.create(80, 70, 34286073);
+    Matrix b = MatrixBenchmark.create(70, 60, 92830465);
+    Matrix expected = MatrixMultiplier.multiply(a, b);
+
+    Matrix actual =
+        MatrixMultiplierContext.shared()
+            .executor()
+            .submit(() -> MatrixMultiplier.multiply(a, b))
+            .get(30, TimeUnit.SECONDS);
+
+    Assert.assertTrue(actual.equals(expected, 0.000001));
+  }
+
+  /** A copy of m, or of its transpose, in the given layout. */
+  private static Matrix copy(Matrix m, boolean transpose, MatrixLayout layout) {
+    int rows = transpose ? m.getNumColumns() : m.getNumRows();
+    int cols = transpose ? m.getNumRows() : m.getNumColumns();
+    Matrix copy = MatrixBuilder.build(rows, cols, layout);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        copy.set(row, col, transpose ? m.get(col, row) : m.get(row, col));
+      }
+    }
+    return copy;
+  }
 }
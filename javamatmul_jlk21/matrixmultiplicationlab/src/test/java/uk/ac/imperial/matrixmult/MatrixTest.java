@@ -38,4 +38,45 @@ public class MatrixTest {
     Matrix m = MatrixBuilder.build(rows - 1, cols);
     m.set(rows, cols, 0.0);
   }
+
+  @Test
+  public void flatBasicCheck() {
+    int rows = 7;
+    int cols = 11;
+    Matrix m = MatrixBuilder.build(rows, cols, MatrixLayout.FLAT);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        m.set(row, col, col * rows + row);
+      }
+    }
+
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        Assert.assertEquals(col * rows + row, m.get(row, col), 0.0001);
+      }
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void flatColumnIndexExceptionChk() {
+    Matrix m = MatrixBuilder.build(10, 9, MatrixLayout.FLAT);
+    m.set(0, 9, 0.0);
+  }
+
+  @Test
+  public void rowAndColumnAccessorsCheck() {
+    double[][] source = {
+      {1.0, 2.0, 3.0},
+      {4.0, 5.0, 6.0}
+    };
+
+    for (MatrixLayout layout : MatrixLayout.values()) {
+      Matrix m = MatrixBuilder.build(source, layout);
+      Assert.assertArrayEquals(new double[] {4.0, 5.0, 6.0}, m.getRow(1), 0.0);
+
+      double[] column = new double[2];
+      m.getColumnInto(2, column);
+      Assert.assertArrayEquals(new double[] {3.0, 6.0}, column, 0.0);
+    }
+  }
 }
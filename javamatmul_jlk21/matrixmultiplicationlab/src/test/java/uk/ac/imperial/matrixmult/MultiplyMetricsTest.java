@@ -0,0 +1,100 @@
+package uk.ac.imperial.matrixmult;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MultiplyMetricsTest {
+
+  @Test
+  public void bandMetricsCheck() throws Exception {
+    List<MultiplyMetrics> reported = new ArrayList<>();
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(3, 0)) {
+      context.addListener(reported::add);
+      context.multiply(MatrixBenchmark.create(90, 70, 1), MatrixBenchmark.create(70, 50, 2));
+    }
+
+    Assert.assertEquals(1, reported.size());
+    MultiplyMetrics metrics = reported.get(0);
+    Assert.assertEquals(VectorMatrixMultiplier.engineName(), metrics.getEngine());
+    Assert.assertFalse(metrics.isSequential());
+    Assert.assertEquals(2L * 90 * 70 * 50, metrics.getFlops());
+    Assert.assertEquals(3, metrics.getBandBusyNanos().length);
+    Assert.assertTrue(metrics.getComputeNanos() > 0);
+    Assert.assertTrue(metrics.getGflops() > 0);
+  }
+
+  @Test
+  public void sequentialAndSparseMetricsCheck() throws Exception {
+    List<MultiplyMetrics> reported = new ArrayList<>();
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(2)) {
+      context.addListener(reported::add);
+      context.multiply(MatrixBenchmark.create(4, 4, 1), MatrixBenchmark.create(4, 4, 2));
+      Matrix sparse = MatrixCsr.of(MatrixBenchmark.create(4, 4, 3, true, 4));
+      context.multiply(sparse, MatrixBenchmark.create(4, 4, 4));
+    }
+
+    Assert.assertEquals(2, reported.size());
+    Assert.assertTrue(reported.get(0).isSequential());
+    Assert.assertEquals(1, reported.get(0).getBandBusyNanos().length);
+    Assert.assertEquals("SPARSE", reported.get(1).getEngine());
+  }
+
+  @Test
+  public void failingListenerDoesNotFailMultiplyCheck() throws Exception {
+    Matrix a = MatrixBenchmark.create(5, 5, 1);
+    Matrix b = MatrixBenchmark.create(5, 5, 2);
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(1)) {
+      context.addListener(
+          metrics -> {
+            throw new IllegalStateException();
+          });
+      Assert.assertTrue(context.multiply(a, b).equals(MatrixMultiplier.multiply(a, b), 0.000001));
+    }
+  }
+
+  @Test
+  public void mbeanCheck() throws Exception {
+    try (MatrixMultiplierContext context = new MatrixMultiplierContext(2)) {
+      MultiplyStats stats = MultiplyStats.register(context, "test");
+      context.multiply(MatrixBenchmark.create(8, 8, 1), MatrixBenchmark.create(8, 8, 2));
+      context.multiply(MatrixBenchmark.create(8, 8, 3), MatrixBenchmark.create(8, 8, 4));
+
+      ObjectName name = new ObjectName("uk.ac.imperial.matrixmult:type=MultiplyStats,name=test");
+      Object calls = ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Calls");
+      Assert.assertEquals(2L, calls);
+      Assert.assertEquals(2 * 2L * 8 * 8 * 8, stats.getTotalFlops());
+
+      MultiplyStats.unregister(context, stats, "test");
+      context.multiply(MatrixBenchmark.create(8, 8, 1), MatrixBenchmark.create(8, 8, 2));
+      Assert.assertEquals(2L, stats.getCalls());
+    }
+  }
+
+  @Test
+  public void staticEnginesReportToSharedContextCheck() throws Exception {
+    // Batch pairs may be reported from several workers at once
+    List<String> engines = new CopyOnWriteArrayList<>();
+    MultiplyListener listener = metrics -> engines.add(metrics.getEngine());
+    Matrix a = MatrixBenchmark.create(12, 10, 1);
+    Matrix b = MatrixBenchmark.create(10, 8, 2);
+    Matrix square = MatrixBenchmark.create(16, 16, 3);
+    MatrixMultiplierContext.shared().addListener(listener);
+    try {
+      MatrixMultiplier.multiply(a, b);
+      MatrixMultiplier.multiplyForkJoin(a, b);
+      MatrixMultiplier.multiplyStrassen(square, square, 4);
+      MatrixMultiplier.gemm(false, false, 1.0, a, b, 0.0, new MatrixFlatArray(12, 8));
+      MatrixMultiplier.multiplyBatch(List.of(a, a), List.of(b, b));
+    } finally {
+      MatrixMultiplierContext.shared().removeListener(listener);
+    }
+
+    Assert.assertEquals(
+        List.of("CELL", "FORK_JOIN", "STRASSEN", "GEMM", "BATCH", "BATCH"), engines);
+  }
+}
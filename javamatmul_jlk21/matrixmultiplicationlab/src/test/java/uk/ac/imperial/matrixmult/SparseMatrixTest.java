@@ -0,0 +1,82 @@
+package uk.ac.imperial.matrixmult;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SparseMatrixTest {
+
+  @Test
+  public void setAndGetCheck() {
+    Matrix[] matrices = {new MatrixCsr(5, 7), new MatrixCsc(5, 7)};
+    for (Matrix m : matrices) {
+      m.set(3, 4, 2.0);
+      m.set(0, 6, 1.0);
+      m.set(3, 1, 5.0);
+      m.set(3, 4, 7.0);
+
+      Assert.assertEquals(7.0, m.get(3, 4), 0.0);
+      Assert.assertEquals(5.0, m.get(3, 1), 0.0);
+      Assert.assertEquals(1.0, m.get(0, 6), 0.0);
+      Assert.assertEquals(0.0, m.get(2, 2), 0.0);
+      Assert.assertEquals(3, ((SparseMatrix) m).getNumNonZeros());
+
+      m.set(3, 1, 0.0);
+      Assert.assertEquals(2, ((SparseMatrix) m).getNumNonZeros());
+      Assert.assertEquals(0.0, m.get(3, 1), 0.0);
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void columnIndexExceptionChk() {
+    new MatrixCsr(10, 9).set(0, 9, 1.0);
+  }
+
+  @Test
+  public void conversionCheck() {
+    Matrix dense = MatrixBenchmark.create(40, 30, 18273645);
+    for (int row = 0; row < 40; row++) {
+      for (int col = 0; col < 30; col++) {
+        if ((row + col) % 3 != 0) {
+          dense.set(row, col, 0.0);
+        }
+      }
+    }
+
+    MatrixCsr csr = MatrixCsr.of(dense);
+    MatrixCsc csc = MatrixCsc.of(dense);
+
+    Assert.assertTrue(csr.equals(dense, 0.0));
+    Assert.assertTrue(csc.equals(dense, 0.0));
+    Assert.assertTrue(csr.toCsc().equals(dense, 0.0));
+    Assert.assertTrue(csc.toCsr().equals(dense, 0.0));
+  }
+
+  @Test
+  public void compactChoosesFormatByDensity() {
+    Matrix sparse = MatrixBenchmark.create(200, 150, 523452365, true, 100);
+    Matrix dense = MatrixBenchmark.create(20, 15, 472676354);
+
+    Assert.assertTrue(sparse instanceof MatrixCsr);
+    Assert.assertSame(dense, MatrixBuilder.compact(dense));
+  }
+
+  @Test
+  public void sparseProductsMatchDense() throws Exception {
+    Matrix sa = MatrixBenchmark.create(120, 90, 523452365, true, 20);
+    Matrix sb = MatrixBenchmark.create(90, 70, 472676354, true, 20);
+    Matrix da = MatrixFlatArray.of(sa);
+    Matrix db = MatrixFlatArray.of(sb);
+    Matrix expected = MatrixMultiplier.multiplyBlocked(da, db);
+
+    Matrix sparseSparse = MatrixMultiplier.multiply(sa, sb);
+    Assert.assertTrue(sparseSparse instanceof MatrixCsr);
+    Assert.assertTrue(sparseSparse.equals(expected, 0.000001));
+
+    Assert.assertTrue(MatrixMultiplier.multiply(sa, db).equals(expected, 0.000001));
+    Assert.assertTrue(MatrixMultiplier.multiply(da, sb).equals(expected, 0.000001));
+    Assert.assertTrue(
+        MatrixMultiplier.multiply(da, MatrixCsc.of(sb)).equals(expected, 0.000001));
+    Assert.assertTrue(
+        MatrixMultiplier.multiply(MatrixCsc.of(sa), MatrixCsc.of(sb)).equals(expected, 0.000001));
+  }
+}
@@ -41,4 +41,45 @@ public class Color {
   public static int getMaxIntensity() {
     return MAX_INTENSITY;
   }
+
+  /**
+   * Returns this colour as a packed RGB int. Each component is truncated to its low 8 bits.
+   *
+   * @return red in bits 16-23, green in bits 8-15 and blue in bits 0-7.
+   */
+  public int toRGB() {
+    return pack(red, green, blue);
+  }
+
+  /**
+   * Constructs a Color from a packed RGB int, ignoring any bits above the red component.
+   *
+   * @param rgb red in bits 16-23, green in bits 8-15 and blue in bits 0-7.
+   */
+  public static Color fromRGB(int rgb) {
+    return new Color(red(rgb), green(rgb), blue(rgb));
+  }
+
+  /**
+   * Packs the specified components into an RGB int without allocating a Color. Each component is
+   * truncated to its low 8 bits.
+   */
+  public static int pack(int red, int green, int blue) {
+    return ((red & 0xff) << 16) | ((green & 0xff) << 8) | (blue & 0xff);
+  }
+
+  /** Returns the red component of a packed RGB int. */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xff;
+  }
+
+  /** Returns the green component of a packed RGB int. */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xff;
+  }
+
+  /** Returns the blue component of a packed RGB int. */
+  public static int blue(int rgb) {
+    return rgb & 0xff;
+  }
 }
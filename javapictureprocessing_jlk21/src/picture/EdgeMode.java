@@ -0,0 +1,33 @@
+package picture;
+
+/**
+ * How neighbourhood operations such as {@link Picture#boxBlur(int, EdgeMode)} see pixels beyond
+ * the edges of a picture.
+ */
+public enum EdgeMode {
+  /** Pixels beyond an edge repeat the edge pixel. */
+  CLAMP {
+    @Override
+    int index(int i, int size) {
+      return Math.max(0, Math.min(size - 1, i));
+    }
+  },
+  /** Pixels beyond an edge mirror those inside it, edge pixel included. */
+  REFLECT {
+    @Override
+    int index(int i, int size) {
+      int period = Math.floorMod(i, 2 * size);
+      return period < size ? period : 2 * size - 1 - period;
+    }
+  },
+  /** Pixels beyond an edge come from the opposite edge, as if the picture were tiled. */
+  WRAP {
+    @Override
+    int index(int i, int size) {
+      return Math.floorMod(i, size);
+    }
+  };
+
+  /** Maps a coordinate that may lie outside [0, size) to the pixel it stands for. */
+  abstract int index(int i, int size);
+}
@@ -1,35 +1,89 @@
 package picture;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntUnaryOperator;
 import javax.imageio.ImageIO;
 
 /**
  * A class that encapsulates and provides a simplified interface for manipulating an image. The
  * internal representation of the image is based on the RGB direct colour model.
+ *
+ * <p>Pixels are held as packed RGB ints, with red in bits 16-23, green in bits 8-15 and blue in
+ * bits 0-7, in a row-major array that is the image's own raster. The transforms work on that
+ * array directly rather than going through the colour model one pixel at a time.
  */
 public class Picture {
 
   /** The internal image representation of this picture. */
   private final BufferedImage image;
 
+  private final int width;
+
+  private final int height;
+
+  /** The raster of {@link #image}: pixel (x, y) is at index {@code y * width + x}. */
+  private final int[] pixels;
+
+  /** Bands smaller than this many pixels cost more to schedule than to compute. */
+  private static final int MIN_BAND_PIXELS = 1 << 14;
+
+  /** Three box passes are within a few percent of a true Gaussian. */
+  static final int GAUSSIAN_BOX_PASSES = 3;
+
+  /** The pool that transforms run on, or null to run them on the calling thread. */
+  private ForkJoinPool pool;
+
   /** Construct a new (blank) Picture object with the specified width and height. */
   public Picture(int width, int height) {
-    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    this(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
   }
 
-  /** Construct a new Picture from the image data in the specified file. */
+  /**
+   * Construct a new Picture from the image data in the specified file. Images in any other format
+   * are converted to packed RGB as they are loaded, dropping any alpha channel.
+   */
   public Picture(String filepath) {
+    this(toIntRgb(read(filepath)));
+  }
+
+  private Picture(BufferedImage image) {
+    this.image = image;
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+  }
+
+  private static BufferedImage read(String filepath) {
     try {
-      image = ImageIO.read(new File(filepath));
+      BufferedImage image = ImageIO.read(new File(filepath));
+      if (image == null) {
+        throw new IOException("No image reader can decode " + filepath);
+      }
+      return image;
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  private static BufferedImage toIntRgb(BufferedImage source) {
+    int width = source.getWidth();
+    int height = source.getHeight();
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    source.getRGB(0, 0, width, height, pixels, 0, width);
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] &= 0xffffff;
+    }
+    return image;
+  }
+
   /**
    * Test if the specified point lies within the boundaries of this picture.
    *
@@ -59,22 +113,9 @@ public class Picture {
 
     Picture otherPic = (Picture) other;
 
-    if (image == null || otherPic.image == null) {
-      return image == otherPic.image;
-    }
-    if (image.getWidth() != otherPic.image.getWidth()
-        || image.getHeight() != otherPic.image.getHeight()) {
-      return false;
-    }
-
-    for (int i = 0; i < image.getWidth(); i++) {
-      for (int j = 0; j < image.getHeight(); j++) {
-        if (image.getRGB(i, j) != otherPic.image.getRGB(i, j)) {
-          return false;
-        }
-      }
-    }
-    return true;
+    return width == otherPic.width
+        && height == otherPic.height
+        && Arrays.equals(pixels, otherPic.pixels);
   }
 
   /**
@@ -83,7 +124,7 @@ public class Picture {
    * @return the height of this <tt>Picture</tt>.
    */
   public int getHeight() {
-    return image.getHeight();
+    return height;
   }
 
   /**
@@ -96,8 +137,50 @@ public class Picture {
    *     the boundaries of this picture.
    */
   public Color getPixel(int x, int y) {
-    int rgb = image.getRGB(x, y);
-    return new Color((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff);
+    return Color.fromRGB(getRGB(x, y));
+  }
+
+  /**
+   * Return the packed RGB pixel-value located at (x,y), without allocating a {@link Color}.
+   *
+   * @param x x-coordinate of the pixel value to return
+   * @param y y-coordinate of the pixel value to return
+   * @return red in bits 16-23, green in bits 8-15 and blue in bits 0-7.
+   * @throws ArrayIndexOutOfBoundsException if the specified pixel-location is not contained within
+   *     the boundaries of this picture.
+   */
+  public int getRGB(int x, int y) {
+    return pixels[index(x, y)];
+  }
+
+  /**
+   * Return the red component of the pixel-value located at (x,y).
+   *
+   * @throws ArrayIndexOutOfBoundsException if the specified pixel-location is not contained within
+   *     the boundaries of this picture.
+   */
+  public int getRed(int x, int y) {
+    return Color.red(getRGB(x, y));
+  }
+
+  /**
+   * Return the green component of the pixel-value located at (x,y).
+   *
+   * @throws ArrayIndexOutOfBoundsException if the specified pixel-location is not contained within
+   *     the boundaries of this picture.
+   */
+  public int getGreen(int x, int y) {
+    return Color.green(getRGB(x, y));
+  }
+
+  /**
+   * Return the blue component of the pixel-value located at (x,y).
+   *
+   * @throws ArrayIndexOutOfBoundsException if the specified pixel-location is not contained within
+   *     the boundaries of this picture.
+   */
+  public int getBlue(int x, int y) {
+    return Color.blue(getRGB(x, y));
   }
 
   /**
@@ -106,18 +189,112 @@ public class Picture {
    * @return the width of this <tt>Picture</tt>.
    */
   public int getWidth() {
-    return image.getWidth();
+    return width;
+  }
+
+  /**
+   * Copy a row of packed RGB pixel-values into the specified array.
+   *
+   * @param y the y-coordinate of the row
+   * @param destination the array to copy into, of length at least the width of this picture
+   * @return the destination array
+   * @throws IndexOutOfBoundsException if the row is not contained within this picture.
+   */
+  public int[] getRow(int y, int[] destination) {
+    return getRegion(0, y, width, 1, destination, 0, width);
+  }
+
+  /**
+   * Overwrite a row of this picture with packed RGB pixel-values.
+   *
+   * @param y the y-coordinate of the row
+   * @param source the pixel-values, of length at least the width of this picture
+   * @throws IndexOutOfBoundsException if the row is not contained within this picture.
+   */
+  public void setRow(int y, int[] source) {
+    setRegion(0, y, width, 1, source, 0, width);
+  }
+
+  /**
+   * Copy a rectangular region of packed RGB pixel-values into the specified array, row by row.
+   *
+   * @param x the x-coordinate of the top left of the region
+   * @param y the y-coordinate of the top left of the region
+   * @param regionWidth the width of the region
+   * @param regionHeight the height of the region
+   * @param destination the array to copy into
+   * @param offset the index in destination of the top left pixel
+   * @param scanLength the distance in destination from the start of one row to the next
+   * @return the destination array
+   * @throws IndexOutOfBoundsException if the region is not contained within this picture.
+   */
+  public int[] getRegion(
+      int x,
+      int y,
+      int regionWidth,
+      int regionHeight,
+      int[] destination,
+      int offset,
+      int scanLength) {
+    checkRegion(x, y, regionWidth, regionHeight);
+    for (int row = 0; row < regionHeight; row++) {
+      System.arraycopy(
+          pixels, (y + row) * width + x, destination, offset + row * scanLength, regionWidth);
+    }
+    return destination;
+  }
+
+  /**
+   * Overwrite a rectangular region of this picture with packed RGB pixel-values, row by row. Any
+   * bits above the blue, green and red channels are ignored.
+   *
+   * @param x the x-coordinate of the top left of the region
+   * @param y the y-coordinate of the top left of the region
+   * @param regionWidth the width of the region
+   * @param regionHeight the height of the region
+   * @param source the pixel-values
+   * @param offset the index in source of the top left pixel
+   * @param scanLength the distance in source from the start of one row to the next
+   * @throws IndexOutOfBoundsException if the region is not contained within this picture.
+   */
+  public void setRegion(
+      int x,
+      int y,
+      int regionWidth,
+      int regionHeight,
+      int[] source,
+      int offset,
+      int scanLength) {
+    checkRegion(x, y, regionWidth, regionHeight);
+    for (int row = 0; row < regionHeight; row++) {
+      int from = offset + row * scanLength;
+      int to = (y + row) * width + x;
+      for (int col = 0; col < regionWidth; col++) {
+        pixels[to + col] = source[from + col] & 0xffffff;
+      }
+    }
+  }
+
+  private void checkRegion(int x, int y, int regionWidth, int regionHeight) {
+    if (x < 0
+        || y < 0
+        || regionWidth < 0
+        || regionHeight < 0
+        || x + regionWidth > width
+        || y + regionHeight > height) {
+      throw new IndexOutOfBoundsException(
+          String.format(
+              "Region (%d, %d) %dx%d is not inside a %dx%d picture",
+              x, y, regionWidth, regionHeight, width, height));
+    }
   }
 
   @Override
   public int hashCode() {
-    if (image == null) {
-      return -1;
-    }
     int hashCode = 0;
-    for (int i = 0; i < image.getWidth(); i++) {
-      for (int j = 0; j < image.getHeight(); j++) {
-        hashCode = 31 * hashCode + image.getRGB(i, j);
+    for (int x = 0; x < width; x++) {
+      for (int y = 0; y < height; y++) {
+        hashCode = 31 * hashCode + (0xff000000 | pixels[y * width + x]);
       }
     }
     return hashCode;
@@ -141,14 +318,27 @@ public class Picture {
    *     the boundaries of this picture.
    */
   public void setPixel(int x, int y, Color rgb) {
+    setRGB(x, y, rgb.toRGB());
+  }
+
+  /**
+   * Update the pixel-value at the specified location from a packed RGB int.
+   *
+   * @param x the x-coordinate of the pixel to be updated
+   * @param y the y-coordinate of the pixel to be updated
+   * @param rgb red in bits 16-23, green in bits 8-15 and blue in bits 0-7; higher bits are ignored
+   * @throws ArrayIndexOutOfBoundsException if the specified pixel-location is not contained within
+   *     the boundaries of this picture.
+   */
+  public void setRGB(int x, int y, int rgb) {
+    pixels[index(x, y)] = rgb & 0xffffff;
+  }
 
-    image.setRGB(
-        x,
-        y,
-        0xff000000
-            | (((0xff & rgb.getRed()) << 16)
-                | ((0xff & rgb.getGreen()) << 8)
-                | (0xff & rgb.getBlue())));
+  private int index(int x, int y) {
+    if (!contains(x, y)) {
+      throw new ArrayIndexOutOfBoundsException("Coordinate out of bounds!");
+    }
+    return y * width + x;
   }
 
   /** Returns a String representation of the RGB components of the picture. */
@@ -158,13 +348,13 @@ public class Picture {
 
     for (int y = 0; y < getHeight(); y++) {
       for (int x = 0; x < getWidth(); x++) {
-        Color rgb = getPixel(x, y);
+        int rgb = pixels[y * width + x];
         sb.append("(");
-        sb.append(rgb.getRed());
+        sb.append(Color.red(rgb));
         sb.append(",");
-        sb.append(rgb.getGreen());
+        sb.append(Color.green(rgb));
         sb.append(",");
-        sb.append(rgb.getBlue());
+        sb.append(Color.blue(rgb));
         sb.append(")");
       }
       sb.append("\n");
@@ -173,24 +363,117 @@ public class Picture {
     return sb.toString();
   }
 
+  /**
+   * Makes the transforms of this picture, and of the pictures they return, run in parallel on the
+   * common fork/join pool. The output is identical to the sequential output.
+   *
+   * @return this picture.
+   */
+  public Picture parallel() {
+    return parallel(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Makes the transforms of this picture, and of the pictures they return, run in parallel on the
+   * specified pool. Each transform splits its output into bands of rows. Every band only writes
+   * its own rows, and reads whichever rows of the source it needs, so bands that look at
+   * neighbouring pixels (such as {@link #blur()}) read their halo rows from the shared, unchanged
+   * source. The output is therefore identical to the sequential output.
+   *
+   * @param pool The pool to run on.
+   * @return this picture.
+   */
+  public Picture parallel(ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  /**
+   * Makes the transforms of this picture run on the calling thread, as they do by default.
+   *
+   * @return this picture.
+   */
+  public Picture sequential() {
+    this.pool = null;
+    return this;
+  }
+
+  /**
+   * Returns true if transforms of this picture run in parallel.
+   *
+   * @return true iff {@link #parallel()} is in effect.
+   */
+  public boolean isParallel() {
+    return pool != null;
+  }
+
+  /** A blank picture for a transform to write into, running in the same mode as this one. */
+  private Picture newResult(int resultWidth, int resultHeight) {
+    Picture result = new Picture(resultWidth, resultHeight);
+    result.pool = pool;
+    return result;
+  }
+
+  /** Runs body over the rows [0, rows) of the output, each of the given width, split into bands. */
+  private static void forEachBand(ForkJoinPool pool, int rows, int rowWidth, RowBand body) {
+    if (pool == null || (long) rows * rowWidth < 2L * MIN_BAND_PIXELS) {
+      body.apply(0, rows);
+      return;
+    }
+    int minRows = Math.max(1, MIN_BAND_PIXELS / Math.max(1, rowWidth));
+    pool.invoke(new RowBandTask(body, 0, rows, minRows));
+  }
+
+  /** Computes the output rows [firstRow, lastRow). */
+  private interface RowBand {
+    void apply(int firstRow, int lastRow);
+  }
+
+  private static class RowBandTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final RowBand body;
+    private final int firstRow;
+    private final int lastRow;
+    private final int minRows;
+
+    RowBandTask(RowBand body, int firstRow, int lastRow, int minRows) {
+      this.body = body;
+      this.firstRow = firstRow;
+      this.lastRow = lastRow;
+      this.minRows = minRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (lastRow - firstRow < 2 * minRows) {
+        body.apply(firstRow, lastRow);
+        return;
+      }
+      int middle = (firstRow + lastRow) >>> 1;
+      invokeAll(
+          new RowBandTask(body, firstRow, middle, minRows),
+          new RowBandTask(body, middle, lastRow, minRows));
+    }
+  }
+
   /**
    * Inverts the colour components of each pixel in the picture.
    *
    * @return The inverted picture.
    */
   public Picture invert() {
-    Picture result = new Picture(getWidth(), getHeight());
-    int maxIntensity = Color.getMaxIntensity();
-    for (int x = 0; x < getWidth(); x++) {
-      for (int y = 0; y < getHeight(); y++) {
-        Color rgb = getPixel(x, y);
-        int red = rgb.getRed();
-        int green = rgb.getGreen();
-        int blue = rgb.getBlue();
-        result.setPixel(
-            x, y, new Color(maxIntensity - red, maxIntensity - green, maxIntensity - blue));
-      }
-    }
+    Picture result = newResult(width, height);
+    int[] out = result.pixels;
+    forEachBand(
+        pool,
+        height,
+        width,
+        (firstRow, lastRow) -> {
+          for (int i = firstRow * width; i < lastRow * width; i++) {
+            out[i] = invertPixel(pixels[i]);
+          }
+        });
     return result;
   }
 
@@ -200,17 +483,65 @@ public class Picture {
    * @return The grayscale version of the picture.
    */
   public Picture grayscale() {
-    Picture result = new Picture(getWidth(), getHeight());
-    for (int x = 0; x < getWidth(); x++) {
-      for (int y = 0; y < getHeight(); y++) {
-        Color rgb = getPixel(x, y);
-        int average = (rgb.getRed() + rgb.getGreen() + rgb.getBlue()) / 3;
-        result.setPixel(x, y, new Color(average, average, average));
-      }
-    }
+    Picture result = newResult(width, height);
+    int[] out = result.pixels;
+    forEachBand(
+        pool,
+        height,
+        width,
+        (firstRow, lastRow) -> {
+          for (int i = firstRow * width; i < lastRow * width; i++) {
+            out[i] = grayscalePixel(pixels[i]);
+          }
+        });
+    return result;
+  }
+
+  static int invertPixel(int rgb) {
+    // Every channel c becomes 255 - c, which for 8-bit channels is flipping all their bits
+    return rgb ^ 0xffffff;
+  }
+
+  static int grayscalePixel(int rgb) {
+    int average = (Color.red(rgb) + Color.green(rgb) + Color.blue(rgb)) / 3;
+    return Color.pack(average, average, average);
+  }
+
+  /**
+   * Builds a picture in one pass, reading each output pixel (x, y) from the pixel of this picture
+   * at {@code (map[0] * x + map[1] * y + map[2], map[3] * x + map[4] * y + map[5])} and passing it
+   * through colours. Used by {@link PicturePipeline} to fuse chains of transforms.
+   */
+  Picture remap(int[] map, int resultWidth, int resultHeight, IntUnaryOperator colours) {
+    Picture result = newResult(resultWidth, resultHeight);
+    int[] out = result.pixels;
+    // Moving one pixel right in the output moves a fixed distance through this picture's array
+    int step = map[3] * width + map[0];
+    forEachBand(
+        pool,
+        resultHeight,
+        resultWidth,
+        (firstRow, lastRow) -> {
+          for (int y = firstRow; y < lastRow; y++) {
+            int source = (map[4] * y + map[5]) * width + map[1] * y + map[2];
+            int row = y * resultWidth;
+            for (int x = 0; x < resultWidth; x++, source += step) {
+              out[row + x] = colours.applyAsInt(pixels[source]);
+            }
+          }
+        });
     return result;
   }
 
+  /**
+   * Starts a lazy chain of transforms on this picture. See {@link PicturePipeline}.
+   *
+   * @return An empty pipeline reading from this picture.
+   */
+  public PicturePipeline pipeline() {
+    return new PicturePipeline(this);
+  }
+
   /**
    * Rotates the picture by the specified number of degrees (90, 180, or 270).
    *
@@ -220,17 +551,30 @@ public class Picture {
     if (degrees != 90 && degrees != 180 && degrees != 270) {
       throw new IllegalArgumentException("Number of degrees must be a non-zero multiple of 90.");
     }
-    Picture result = this;
-    int numRotations = degrees / 90;
-    for (int rotation = 0; rotation < numRotations; rotation++) {
-      Picture rotatedOnce = new Picture(result.getHeight(), result.getWidth());
-      for (int x = 0; x < result.getWidth(); x++) {
-        for (int y = 0; y < result.getHeight(); y++) {
-          rotatedOnce.setPixel(rotatedOnce.getWidth() - y - 1, x, result.getPixel(x, y));
-        }
-      }
-      result = rotatedOnce;
-    }
+    boolean quarterTurn = degrees != 180;
+    Picture result = quarterTurn ? newResult(height, width) : newResult(width, height);
+    int[] out = result.pixels;
+    // Bands are rows of the source; every source pixel has its own target, so bands never clash
+    forEachBand(
+        pool,
+        height,
+        width,
+        (firstRow, lastRow) -> {
+          for (int y = firstRow; y < lastRow; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+              int target;
+              if (degrees == 90) {
+                target = x * height + (height - y - 1);
+              } else if (degrees == 180) {
+                target = (height - y - 1) * width + (width - x - 1);
+              } else {
+                target = (width - x - 1) * height + y;
+              }
+              out[target] = pixels[row + x];
+            }
+          }
+        });
     return result;
   }
 
@@ -240,16 +584,20 @@ public class Picture {
    * @return The flipped picture.
    */
   public Picture flipHorizontal() {
-    Picture result = new Picture(getWidth(), getHeight());
-    int midpointX = getWidth() / 2;
-    for (int y = 0; y < getHeight(); y++) {
-      for (int x = 0; x < midpointX; x++) {
-        int oppositeX = getWidth() - x - 1;
-        Color oppositeRGB = getPixel(oppositeX, y);
-        result.setPixel(oppositeX, y, getPixel(x, y));
-        result.setPixel(x, y, oppositeRGB);
-      }
-    }
+    Picture result = newResult(width, height);
+    int[] out = result.pixels;
+    forEachBand(
+        pool,
+        height,
+        width,
+        (firstRow, lastRow) -> {
+          for (int y = firstRow; y < lastRow; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+              out[row + width - x - 1] = pixels[row + x];
+            }
+          }
+        });
     return result;
   }
 
@@ -259,23 +607,24 @@ public class Picture {
    * @return The flipped picture.
    */
   public Picture flipVertical() {
-    Picture result = new Picture(getWidth(), getHeight());
-    int midpointY = getHeight() / 2;
-    for (int x = 0; x < getWidth(); x++) {
-      for (int y = 0; y < midpointY; y++) {
-        int oppositeY = getHeight() - y - 1;
-        Color oppositeRGB = getPixel(x, oppositeY);
-        result.setPixel(x, oppositeY, getPixel(x, y));
-        result.setPixel(x, y, oppositeRGB);
-      }
-    }
+    Picture result = newResult(width, height);
+    forEachBand(
+        pool,
+        height,
+        width,
+        (firstRow, lastRow) -> {
+          for (int y = firstRow; y < lastRow; y++) {
+            System.arraycopy(pixels, y * width, result.pixels, (height - y - 1) * width, width);
+          }
+        });
     return result;
   }
 
   /**
    * Blends the list of pictures such that they appear layered on top of each other. If the pictures
    * are of different sizes, they will be aligned to the top left corner and the resultant blended
-   * picture will have the minimum width and height of all the pictures.
+   * picture will have the minimum width and height of all the pictures. The blend runs in parallel
+   * if the first picture is parallel.
    *
    * @param pictures The list of pictures to be blended.
    * @return The blended picture.
@@ -287,24 +636,38 @@ public class Picture {
     }
     int minWidth = pictures.stream().mapToInt(Picture::getWidth).min().orElse(0);
     int minHeight = pictures.stream().mapToInt(Picture::getHeight).min().orElse(0);
-    Picture result = new Picture(minWidth, minHeight);
-    for (int x = 0; x < minWidth; x++) {
-      for (int y = 0; y < minHeight; y++) {
-        int redTotal = 0;
-        int greenTotal = 0;
-        int blueTotal = 0;
-        for (Picture picture : pictures) {
-          Color rgb = picture.getPixel(x, y);
-          redTotal += rgb.getRed();
-          greenTotal += rgb.getGreen();
-          blueTotal += rgb.getBlue();
-        }
-        int redAvg = redTotal / numPictures;
-        int greenAvg = greenTotal / numPictures;
-        int blueAvg = blueTotal / numPictures;
-        result.setPixel(x, y, new Color(redAvg, greenAvg, blueAvg));
-      }
-    }
+    Picture result = pictures.get(0).newResult(minWidth, minHeight);
+    forEachBand(
+        result.pool,
+        minHeight,
+        minWidth,
+        (firstRow, lastRow) -> {
+          int[] redTotals = new int[minWidth];
+          int[] greenTotals = new int[minWidth];
+          int[] blueTotals = new int[minWidth];
+          for (int y = firstRow; y < lastRow; y++) {
+            Arrays.fill(redTotals, 0);
+            Arrays.fill(greenTotals, 0);
+            Arrays.fill(blueTotals, 0);
+            for (Picture picture : pictures) {
+              int[] in = picture.pixels;
+              int row = y * picture.width;
+              for (int x = 0; x < minWidth; x++) {
+                int rgb = in[row + x];
+                redTotals[x] += Color.red(rgb);
+                greenTotals[x] += Color.green(rgb);
+                blueTotals[x] += Color.blue(rgb);
+              }
+            }
+            int row = y * minWidth;
+            for (int x = 0; x < minWidth; x++) {
+              int redAvg = redTotals[x] / numPictures;
+              int greenAvg = greenTotals[x] / numPictures;
+              int blueAvg = blueTotals[x] / numPictures;
+              result.pixels[row + x] = Color.pack(redAvg, greenAvg, blueAvg);
+            }
+          }
+        });
     return result;
   }
 
@@ -314,36 +677,136 @@ public class Picture {
    * @return The blurred picture.
    */
   public Picture blur() {
-    Picture result = new Picture(getWidth(), getHeight());
+    Picture result = newResult(width, height);
+    int[] out = result.pixels;
     int neighbourhoodWidth = 3;
     int neighbourhoodHeight = 3;
     int numPixels = neighbourhoodWidth * neighbourhoodHeight;
     int maxdx = neighbourhoodWidth / 2;
     int maxdy = neighbourhoodHeight / 2;
-    for (int x = 0; x < getWidth(); x++) {
-      for (int y = 0; y < getHeight(); y++) {
-        if (x == 0 || x == getWidth() - 1 || y == 0 || y == getHeight() - 1) {
-          // Boundary pixels are unchanged
-          result.setPixel(x, y, getPixel(x, y));
-          continue;
-        }
-        List<Color> neighbourhood = new ArrayList<>();
-        for (int dx = -maxdx; dx <= maxdx; dx++) {
-          for (int dy = -maxdy; dy <= maxdy; dy++) {
-            neighbourhood.add(getPixel(x + dx, y + dy));
+    forEachBand(
+        pool,
+        height,
+        width,
+        (firstRow, lastRow) -> {
+          // Boundary pixels are unchanged, so start from a copy and overwrite the interior
+          System.arraycopy(
+              pixels, firstRow * width, out, firstRow * width, (lastRow - firstRow) * width);
+          int firstInterior = Math.max(firstRow, maxdy);
+          int lastInterior = Math.min(lastRow, height - maxdy);
+          for (int y = firstInterior; y < lastInterior; y++) {
+            for (int x = maxdx; x < width - maxdx; x++) {
+              int redTotal = 0;
+              int greenTotal = 0;
+              int blueTotal = 0;
+              for (int dy = -maxdy; dy <= maxdy; dy++) {
+                int row = (y + dy) * width + x;
+                for (int dx = -maxdx; dx <= maxdx; dx++) {
+                  int rgb = pixels[row + dx];
+                  redTotal += Color.red(rgb);
+                  greenTotal += Color.green(rgb);
+                  blueTotal += Color.blue(rgb);
+                }
+              }
+              int redAvg = redTotal / numPixels;
+              int greenAvg = greenTotal / numPixels;
+              int blueAvg = blueTotal / numPixels;
+              out[y * width + x] = Color.pack(redAvg, greenAvg, blueAvg);
+            }
           }
-        }
-        int redAvg = neighbourhood.stream().mapToInt(Color::getRed).sum() / numPixels;
-        int greenAvg = neighbourhood.stream().mapToInt(Color::getGreen).sum() / numPixels;
-        int blueAvg = neighbourhood.stream().mapToInt(Color::getBlue).sum() / numPixels;
-        result.setPixel(x, y, new Color(redAvg, greenAvg, blueAvg));
-      }
+        });
+    return result;
+  }
+
+  /**
+   * Blurs the picture by averaging the (2 * radius + 1) square window around each pixel, treating
+   * pixels beyond the edges as copies of the nearest edge pixel.
+   *
+   * @param radius The distance from each pixel to the edge of its window.
+   * @return The blurred picture.
+   */
+  public Picture boxBlur(int radius) {
+    return boxBlur(radius, EdgeMode.CLAMP);
+  }
+
+  /**
+   * Blurs the picture by averaging the (2 * radius + 1) square window around each pixel. The cost
+   * per pixel does not depend on the radius.
+   *
+   * @param radius The distance from each pixel to the edge of its window.
+   * @param edges How the window sees pixels beyond the edges of the picture.
+   * @return The blurred picture.
+   */
+  public Picture boxBlur(int radius, EdgeMode edges) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative.");
+    }
+    return boxPasses(new int[] {radius}, edges);
+  }
+
+  /**
+   * Approximates a Gaussian blur, treating pixels beyond the edges as copies of the nearest edge
+   * pixel.
+   *
+   * @param sigma The standard deviation of the Gaussian, in pixels.
+   * @return The blurred picture.
+   */
+  public Picture gaussianBlur(double sigma) {
+    return gaussianBlur(sigma, EdgeMode.CLAMP);
+  }
+
+  /**
+   * Approximates a Gaussian blur by three box blurs in a row, whose radii are chosen so that
+   * together they have the variance of the Gaussian. The cost per pixel does not depend on sigma.
+   *
+   * @param sigma The standard deviation of the Gaussian, in pixels.
+   * @param edges How the blur sees pixels beyond the edges of the picture.
+   * @return The blurred picture.
+   */
+  public Picture gaussianBlur(double sigma, EdgeMode edges) {
+    if (!(sigma >= 0)) {
+      throw new IllegalArgumentException("Sigma must not be negative.");
+    }
+    return boxPasses(SeparableBlur.gaussianRadii(sigma, GAUSSIAN_BOX_PASSES), edges);
+  }
+
+  /** Applies a box blur of each radius in turn, each as a horizontal then a vertical pass. */
+  private Picture boxPasses(int[] radii, EdgeMode edges) {
+    Picture result = newResult(width, height);
+    if (width == 0 || height == 0) {
+      return result;
+    }
+    int[] rows = new int[pixels.length];
+    // The horizontal pass has finished reading a pass's input before the vertical pass writes its
+    // output, so every pass but the last can write back into the same spare array
+    int[] spare = radii.length > 1 ? new int[pixels.length] : null;
+    int[] current = pixels;
+    for (int pass = 0; pass < radii.length; pass++) {
+      int radius = radii[pass];
+      int[] source = current;
+      int[] target = pass == radii.length - 1 ? result.pixels : spare;
+      forEachBand(
+          pool,
+          height,
+          width,
+          (firstRow, lastRow) ->
+              SeparableBlur.horizontal(source, rows, width, radius, edges, firstRow, lastRow));
+      // The vertical pass reads rows above and below each band, so it waits for all of them
+      forEachBand(
+          pool,
+          height,
+          width,
+          (firstRow, lastRow) ->
+              SeparableBlur.vertical(
+                  rows, target, width, height, radius, edges, firstRow, lastRow));
+      current = target;
     }
     return result;
   }
 
   /**
-   * Combines a list of pictures to generate a mosaic.
+   * Combines a list of pictures to generate a mosaic. The mosaic is built in parallel if the first
+   * picture is parallel.
    *
    * @param pictures The list of pictures.
    * @param tileSize The side length of each square tile in pixels.
@@ -354,15 +817,23 @@ public class Picture {
     minWidth -= minWidth % tileSize;
     int minHeight = pictures.stream().mapToInt(Picture::getHeight).min().orElse(0);
     minHeight -= minHeight % tileSize;
-    Picture result = new Picture(minWidth, minHeight);
+    Picture result = pictures.get(0).newResult(minWidth, minHeight);
     int numPictures = pictures.size();
-    for (int y = 0; y < minHeight; y += tileSize) {
-      int nthPicture = (y / tileSize) % numPictures;
-      for (int x = 0; x < minWidth; x += tileSize) {
-        result.copyTile(x, y, tileSize, pictures.get(nthPicture));
-        nthPicture = (nthPicture + 1) % numPictures;
-      }
-    }
+    int resultWidth = minWidth;
+    // Bands are rows of tiles, so no tile is split between two bands
+    forEachBand(
+        result.pool,
+        minHeight / tileSize,
+        resultWidth * tileSize,
+        (firstTileRow, lastTileRow) -> {
+          for (int y = firstTileRow * tileSize; y < lastTileRow * tileSize; y += tileSize) {
+            int nthPicture = (y / tileSize) % numPictures;
+            for (int x = 0; x < resultWidth; x += tileSize) {
+              result.copyTile(x, y, tileSize, pictures.get(nthPicture));
+              nthPicture = (nthPicture + 1) % numPictures;
+            }
+          }
+        });
     return result;
   }
 
@@ -375,10 +846,9 @@ public class Picture {
    * @param from The image to be copied from.
    */
   private void copyTile(int topLeftX, int topLeftY, int tileSize, Picture from) {
-    for (int x = topLeftX; x < topLeftX + tileSize; x++) {
-      for (int y = topLeftY; y < topLeftY + tileSize; y++) {
-        setPixel(x, y, from.getPixel(x, y));
-      }
+    for (int y = topLeftY; y < topLeftY + tileSize; y++) {
+      System.arraycopy(
+          from.pixels, y * from.width + topLeftX, pixels, y * width + topLeftX, tileSize);
     }
   }
 }
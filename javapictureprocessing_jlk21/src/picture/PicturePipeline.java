@@ -0,0 +1,192 @@
+package picture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * Records a chain of transforms on a picture and runs them only when {@link #apply()} is called,
+ * with as few passes over the pixels as possible.
+ *
+ * <p>Point-wise transforms (invert, grayscale) change each pixel on its own, and geometric ones
+ * (rotate, flip) only move pixels around, so any run of them is carried out in a single pass: the
+ * geometric transforms compose into one mapping from output to source coordinates, and the
+ * point-wise ones into one function applied to each pixel as it is copied. Blurs need the
+ * neighbours of each pixel, so they end the run and take a pass of their own.
+ *
+ * <p>The recording methods return this pipeline so that calls can be chained. The result is
+ * identical to calling the same transforms on {@link Picture} one after another.
+ */
+public class PicturePipeline {
+
+  private static final int[] IDENTITY = {1, 0, 0, 0, 1, 0};
+
+  private final Picture source;
+
+  /** The passes recorded before the current run of point-wise and geometric transforms. */
+  private final List<UnaryOperator<Picture>> passes = new ArrayList<>();
+
+  /** Maps output coordinates of the current run to coordinates of its input; see remap. */
+  private int[] map = IDENTITY;
+
+  /** The colour function of the current run, or null if it has no point-wise transforms. */
+  private IntUnaryOperator colours;
+
+  private int width;
+
+  private int height;
+
+  PicturePipeline(Picture source) {
+    this.source = source;
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+  }
+
+  /**
+   * Records {@link Picture#invert()}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline invert() {
+    return pointwise(Picture::invertPixel);
+  }
+
+  /**
+   * Records {@link Picture#grayscale()}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline grayscale() {
+    return pointwise(Picture::grayscalePixel);
+  }
+
+  /**
+   * Records {@link Picture#rotate(int)}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline rotate(int degrees) {
+    switch (degrees) {
+      case 90:
+        return geometric(new int[] {0, 1, 0, -1, 0, height - 1}, height, width);
+      case 180:
+        return geometric(new int[] {-1, 0, width - 1, 0, -1, height - 1}, width, height);
+      case 270:
+        return geometric(new int[] {0, -1, width - 1, 1, 0, 0}, height, width);
+      default:
+        throw new IllegalArgumentException("Number of degrees must be a non-zero multiple of 90.");
+    }
+  }
+
+  /**
+   * Records {@link Picture#flipHorizontal()}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline flipHorizontal() {
+    return geometric(new int[] {-1, 0, width - 1, 0, 1, 0}, width, height);
+  }
+
+  /**
+   * Records {@link Picture#flipVertical()}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline flipVertical() {
+    return geometric(new int[] {1, 0, 0, 0, -1, height - 1}, width, height);
+  }
+
+  /**
+   * Records {@link Picture#blur()}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline blur() {
+    return neighbourhood(Picture::blur);
+  }
+
+  /**
+   * Records {@link Picture#boxBlur(int, EdgeMode)}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline boxBlur(int radius, EdgeMode edges) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative.");
+    }
+    return neighbourhood(picture -> picture.boxBlur(radius, edges));
+  }
+
+  /**
+   * Records {@link Picture#gaussianBlur(double, EdgeMode)}.
+   *
+   * @return this pipeline.
+   */
+  public PicturePipeline gaussianBlur(double sigma, EdgeMode edges) {
+    if (!(sigma >= 0)) {
+      throw new IllegalArgumentException("Sigma must not be negative.");
+    }
+    return neighbourhood(picture -> picture.gaussianBlur(sigma, edges));
+  }
+
+  /**
+   * Runs the recorded transforms. The source picture is left unchanged, and the pipeline can be
+   * applied again or extended afterwards.
+   *
+   * @return A new picture holding the result.
+   */
+  public Picture apply() {
+    Picture result = source;
+    for (UnaryOperator<Picture> pass : passes) {
+      result = pass.apply(result);
+    }
+    if (result == source || map != IDENTITY || colours != null) {
+      result = currentRun().apply(result);
+    }
+    return result;
+  }
+
+  private PicturePipeline pointwise(IntUnaryOperator operator) {
+    colours = colours == null ? operator : colours.andThen(operator);
+    return this;
+  }
+
+  /**
+   * Composes a geometric transform onto the current run. step maps the new output coordinates to
+   * the current output coordinates, and map maps those to the input of the run.
+   */
+  private PicturePipeline geometric(int[] step, int newWidth, int newHeight) {
+    int[] m = map;
+    map =
+        new int[] {
+          m[0] * step[0] + m[1] * step[3],
+          m[0] * step[1] + m[1] * step[4],
+          m[0] * step[2] + m[1] * step[5] + m[2],
+          m[3] * step[0] + m[4] * step[3],
+          m[3] * step[1] + m[4] * step[4],
+          m[3] * step[2] + m[4] * step[5] + m[5]
+        };
+    width = newWidth;
+    height = newHeight;
+    return this;
+  }
+
+  private PicturePipeline neighbourhood(UnaryOperator<Picture> pass) {
+    if (map != IDENTITY || colours != null) {
+      passes.add(currentRun());
+      map = IDENTITY;
+      colours = null;
+    }
+    passes.add(pass);
+    return this;
+  }
+
+  private UnaryOperator<Picture> currentRun() {
+    int[] runMap = map;
+    int runWidth = width;
+    int runHeight = height;
+    IntUnaryOperator runColours = colours == null ? IntUnaryOperator.identity() : colours;
+    return picture -> picture.remap(runMap, runWidth, runHeight, runColours);
+  }
+}
@@ -1,28 +1,35 @@
 package picture;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 public class PictureProcessor {
 
+  // Usage: [--parallel] <transformation> <arguments...>
   public static void main(String[] args) {
+    boolean parallel = args.length > 0 && args[0].equals("--parallel");
+    if (parallel) {
+      args = Arrays.copyOfRange(args, 1, args.length);
+    }
     switch (args[0]) {
       case "invert" -> {
-        Picture picture = new Picture(args[1]);
+        Picture picture = load(parallel, args[1]);
         picture.invert().saveAs(args[2]);
       }
       case "grayscale" -> {
-        Picture picture = new Picture(args[1]);
+        Picture picture = load(parallel, args[1]);
         picture.grayscale().saveAs(args[2]);
       }
       case "rotate" -> {
         int degrees = Integer.parseInt(args[1]);
-        Picture picture = new Picture(args[2]);
+        Picture picture = load(parallel, args[2]);
         picture.rotate(degrees).saveAs(args[3]);
       }
       case "flip" -> {
         String flipDirection = args[1];
-        Picture picture = new Picture(args[2]);
+        Picture picture = load(parallel, args[2]);
         String destination = args[3];
         if (flipDirection.equals("H")) {
           picture.flipHorizontal().saveAs(destination);
@@ -34,21 +41,60 @@ public class PictureProcessor {
         int numArgs = args.length;
         List<Picture> pictures = new ArrayList<>();
         for (int i = 1; i < numArgs - 1; i++) {
-          pictures.add(new Picture(args[i]));
+          pictures.add(load(parallel, args[i]));
         }
         Picture.blend(pictures).saveAs(args[numArgs - 1]);
       }
       case "blur" -> {
-        Picture picture = new Picture(args[1]);
+        Picture picture = load(parallel, args[1]);
         picture.blur().saveAs(args[2]);
       }
+      case "boxblur" -> {
+        // boxblur <radius> [clamp|reflect|wrap] <input> <output>
+        int radius = Integer.parseInt(args[1]);
+        EdgeMode edges = args.length > 4 ? parseEdgeMode(args[2]) : EdgeMode.CLAMP;
+        Picture picture = load(parallel, args[args.length - 2]);
+        picture.boxBlur(radius, edges).saveAs(args[args.length - 1]);
+      }
+      case "gaussian" -> {
+        // gaussian <sigma> [clamp|reflect|wrap] <input> <output>
+        double sigma = Double.parseDouble(args[1]);
+        EdgeMode edges = args.length > 4 ? parseEdgeMode(args[2]) : EdgeMode.CLAMP;
+        Picture picture = load(parallel, args[args.length - 2]);
+        picture.gaussianBlur(sigma, edges).saveAs(args[args.length - 1]);
+      }
+      case "pipeline" -> {
+        // pipeline <op> [<op>...] <input> <output>, where each op is one of invert, grayscale,
+        // rotate:<degrees>, flip:<H|V>, blur, boxblur:<radius>[:<edges>] or
+        // gaussian:<sigma>[:<edges>]
+        PicturePipeline pipeline = load(parallel, args[args.length - 2]).pipeline();
+        for (int i = 1; i < args.length - 2; i++) {
+          addStep(pipeline, args[i]);
+        }
+        pipeline.apply().saveAs(args[args.length - 1]);
+      }
+      case "stream" -> {
+        // stream [subsample:<factor>] [strip:<rows>] <op>... <input> <output>, with the ops of
+        // pipeline except rotate, for images too large to load. Strips default to a quarter of
+        // the heap. The PNG reader decodes from the start of the file for every strip, so a PNG
+        // input of n strips takes about n^2 / 2 strips' worth of decoding: give it a larger heap
+        // or strip:<rows> rather than small strips
+        StreamingPicture picture = new StreamingPicture(args[args.length - 2]);
+        if (parallel) {
+          picture.parallel();
+        }
+        for (int i = 1; i < args.length - 2; i++) {
+          addStreamingStep(picture, args[i]);
+        }
+        picture.saveAs(args[args.length - 1]);
+      }
       case "mosaic" -> {
         // mosaic [tileSize] <input_1> <input_2> ... <output>
         int numArgs = args.length;
         int tileSize = Integer.parseInt(args[1]);
         List<Picture> pictures = new ArrayList<>();
         for (int i = 2; i < numArgs - 1; i++) {
-          pictures.add(new Picture(args[i]));
+          pictures.add(load(parallel, args[i]));
         }
         Picture.mosaic(pictures, tileSize).saveAs(args[numArgs - 1]);
       }
@@ -57,4 +103,60 @@ public class PictureProcessor {
       }
     }
   }
+
+  private static void addStep(PicturePipeline pipeline, String step) {
+    String[] parts = step.split(":");
+    EdgeMode edges = parts.length > 2 ? parseEdgeMode(parts[2]) : EdgeMode.CLAMP;
+    switch (parts[0]) {
+      case "invert" -> pipeline.invert();
+      case "grayscale" -> pipeline.grayscale();
+      case "rotate" -> pipeline.rotate(Integer.parseInt(parts[1]));
+      case "flip" -> {
+        if (parts[1].equals("H")) {
+          pipeline.flipHorizontal();
+        } else if (parts[1].equals("V")) {
+          pipeline.flipVertical();
+        } else {
+          throw new IllegalArgumentException("Invalid flip direction: " + parts[1]);
+        }
+      }
+      case "blur" -> pipeline.blur();
+      case "boxblur" -> pipeline.boxBlur(Integer.parseInt(parts[1]), edges);
+      case "gaussian" -> pipeline.gaussianBlur(Double.parseDouble(parts[1]), edges);
+      default -> throw new IllegalArgumentException("Invalid pipeline step: " + step);
+    }
+  }
+
+  private static void addStreamingStep(StreamingPicture picture, String step) {
+    String[] parts = step.split(":");
+    EdgeMode edges = parts.length > 2 ? parseEdgeMode(parts[2]) : EdgeMode.CLAMP;
+    switch (parts[0]) {
+      case "subsample" -> picture.subsample(Integer.parseInt(parts[1]));
+      case "strip" -> picture.stripHeight(Integer.parseInt(parts[1]));
+      case "invert" -> picture.invert();
+      case "grayscale" -> picture.grayscale();
+      case "flip" -> {
+        if (parts[1].equals("H")) {
+          picture.flipHorizontal();
+        } else if (parts[1].equals("V")) {
+          picture.flipVertical();
+        } else {
+          throw new IllegalArgumentException("Invalid flip direction: " + parts[1]);
+        }
+      }
+      case "blur" -> picture.blur();
+      case "boxblur" -> picture.boxBlur(Integer.parseInt(parts[1]), edges);
+      case "gaussian" -> picture.gaussianBlur(Double.parseDouble(parts[1]), edges);
+      default -> throw new IllegalArgumentException("Invalid streaming step: " + step);
+    }
+  }
+
+  private static EdgeMode parseEdgeMode(String name) {
+    return EdgeMode.valueOf(name.toUpperCase(Locale.ROOT));
+  }
+
+  private static Picture load(boolean parallel, String filepath) {
+    Picture picture = new Picture(filepath);
+    return parallel ? picture.parallel() : picture;
+  }
 }
@@ -0,0 +1,122 @@
+package picture;
+
+/**
+ * Box filter passes over packed RGB pixels. A box blur of radius r averages a (2r + 1) x (2r + 1)
+ * window, which is the same as averaging 2r + 1 pixels along each row and then 2r + 1 pixels
+ * down each column of the result. Each pass keeps running sums of the three channels, adding the
+ * pixel entering the window and subtracting the one leaving it, so a pixel costs the same
+ * whatever the radius.
+ */
+final class SeparableBlur {
+
+  private SeparableBlur() {}
+
+  /** Box-filters rows [firstRow, lastRow) of source along x into the same rows of target. */
+  static void horizontal(
+      int[] source,
+      int[] target,
+      int width,
+      int radius,
+      EdgeMode edges,
+      int firstRow,
+      int lastRow) {
+    int window = 2 * radius + 1;
+    for (int y = firstRow; y < lastRow; y++) {
+      int row = y * width;
+      int red = 0;
+      int green = 0;
+      int blue = 0;
+      for (int i = -radius; i <= radius; i++) {
+        int rgb = source[row + index(i, width, edges)];
+        red += Color.red(rgb);
+        green += Color.green(rgb);
+        blue += Color.blue(rgb);
+      }
+      for (int x = 0; x < width; x++) {
+        target[row + x] = average(red, green, blue, window);
+        int entering = source[row + index(x + radius + 1, width, edges)];
+        int leaving = source[row + index(x - radius, width, edges)];
+        red += Color.red(entering) - Color.red(leaving);
+        green += Color.green(entering) - Color.green(leaving);
+        blue += Color.blue(entering) - Color.blue(leaving);
+      }
+    }
+  }
+
+  /**
+   * Box-filters source along y into rows [firstRow, lastRow) of target. Whole rows are added and
+   * subtracted at a time, so memory is read in order.
+   */
+  static void vertical(
+      int[] source,
+      int[] target,
+      int width,
+      int height,
+      int radius,
+      EdgeMode edges,
+      int firstRow,
+      int lastRow) {
+    int window = 2 * radius + 1;
+    int[] reds = new int[width];
+    int[] greens = new int[width];
+    int[] blues = new int[width];
+    for (int i = firstRow - radius; i <= firstRow + radius; i++) {
+      addRow(source, index(i, height, edges) * width, width, reds, greens, blues, 1);
+    }
+    for (int y = firstRow; y < lastRow; y++) {
+      int row = y * width;
+      for (int x = 0; x < width; x++) {
+        target[row + x] = average(reds[x], greens[x], blues[x], window);
+      }
+      if (y + 1 < lastRow) {
+        int entering = index(y + radius + 1, height, edges) * width;
+        int leaving = index(y - radius, height, edges) * width;
+        addRow(source, entering, width, reds, greens, blues, 1);
+        addRow(source, leaving, width, reds, greens, blues, -1);
+      }
+    }
+  }
+
+  /**
+   * The radii of the box passes whose repeated application best approximates a Gaussian blur of
+   * standard deviation sigma (P. Kovesi, Fast Almost-Gaussian Filtering, 2010). Each pass adds
+   * ((2r + 1)^2 - 1) / 12 to the variance, so the radii are chosen for the passes to add up to
+   * sigma^2.
+   */
+  static int[] gaussianRadii(double sigma, int passes) {
+    double idealWidth = Math.sqrt(12 * sigma * sigma / passes + 1);
+    int lower = (int) Math.floor(idealWidth);
+    if (lower % 2 == 0) {
+      lower--;
+    }
+    int upper = lower + 2;
+    double idealLowerPasses =
+        (12 * sigma * sigma - passes * lower * lower - 4.0 * passes * lower - 3.0 * passes)
+            / (-4.0 * lower - 4);
+    int lowerPasses = (int) Math.max(0, Math.min(passes, Math.round(idealLowerPasses)));
+    int[] radii = new int[passes];
+    for (int pass = 0; pass < passes; pass++) {
+      radii[pass] = ((pass < lowerPasses ? lower : upper) - 1) / 2;
+    }
+    return radii;
+  }
+
+  private static int index(int i, int size, EdgeMode edges) {
+    return i >= 0 && i < size ? i : edges.index(i, size);
+  }
+
+  private static int average(int red, int green, int blue, int window) {
+    int half = window / 2;
+    return Color.pack((red + half) / window, (green + half) / window, (blue + half) / window);
+  }
+
+  private static void addRow(
+      int[] source, int row, int width, int[] reds, int[] greens, int[] blues, int sign) {
+    for (int x = 0; x < width; x++) {
+      int rgb = source[row + x];
+      reds[x] += sign * Color.red(rgb);
+      greens[x] += sign * Color.green(rgb);
+      blues[x] += sign * Color.blue(rgb);
+    }
+  }
+}
@@ -0,0 +1,523 @@
+package picture;
+
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.function.UnaryOperator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Transforms an image file into another without ever holding either image in memory, for images
+ * too large to load as a {@link Picture}.
+ *
+ * <p>The transforms are recorded and run by {@link #saveAs(String)}. The image writer asks for the
+ * output a few rows at a time, and each strip of output rows is computed from the strip of source
+ * rows it depends on, read through an {@link ImageReader} with a source region (and, if asked
+ * for, subsampling). Only transforms that keep every output row within a bounded distance of its
+ * source rows can work this way, so there is no rotation. Blurs read a halo of extra rows above
+ * and below each strip.
+ *
+ * <p>The result is identical to loading the (subsampled) image as a Picture and applying the same
+ * transforms, except that a Gaussian blur needs {@link EdgeMode#REFLECT} or {@link EdgeMode#WRAP}
+ * edges: its later box passes see the picture's edges through the earlier passes, and with
+ * clamped edges that cannot be recovered from a strip.
+ *
+ * <p>Some readers, such as the PNG reader, decode from the start of the file for every strip they
+ * are asked for, so larger strips cost less time and more memory. Formats with random access to
+ * their rows, such as TIFF, read each strip directly.
+ */
+public class StreamingPicture {
+
+  /** Strips default to this fraction of the maximum heap size. */
+  private static final int STRIP_HEAP_FRACTION = 4;
+
+  /**
+   * The bytes a strip pixel costs while it is computed: the decoded rows, the packed copy of them
+   * and a padded copy and a result for the step being run, at four bytes each, and some slack.
+   */
+  private static final int BYTES_PER_STRIP_PIXEL = 32;
+
+  private static final ColorModel RGB = new DirectColorModel(24, 0xff0000, 0xff00, 0xff);
+
+  private final String filepath;
+
+  private final int sourceWidth;
+
+  private final int sourceHeight;
+
+  private int subsampling = 1;
+
+  /** The number of rows in a strip, or 0 to size them from the maximum heap size. */
+  private int stripHeight;
+
+  private boolean parallel;
+
+  private final List<Step> steps = new ArrayList<>();
+
+  /**
+   * A transform of a strip of rows. Output rows depend on input rows at most halo rows away, or
+   * on the mirrored rows if mirrors is set. If edges is null, the transform treats the first and
+   * last rows of the picture it is given specially, so it is only ever given the picture's real
+   * edges; otherwise the rows beyond the edges are filled in with edges.
+   */
+  private static final class Step {
+    final UnaryOperator<Picture> transform;
+    final int halo;
+    final EdgeMode edges;
+    final boolean mirrors;
+
+    Step(UnaryOperator<Picture> transform, int halo, EdgeMode edges, boolean mirrors) {
+      this.transform = transform;
+      this.halo = halo;
+      this.edges = edges;
+      this.mirrors = mirrors;
+    }
+
+    Step(UnaryOperator<Picture> transform, int halo, EdgeMode edges) {
+      this(transform, halo, edges, false);
+    }
+  }
+
+  /** Opens the image in the specified file, reading only its size. */
+  public StreamingPicture(String filepath) {
+    this.filepath = filepath;
+    try (ImageInputStream in = ImageIO.createImageInputStream(new File(filepath))) {
+      ImageReader reader = reader(in);
+      try {
+        this.sourceWidth = reader.getWidth(0);
+        this.sourceHeight = reader.getHeight(0);
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static ImageReader reader(ImageInputStream in) throws IOException {
+    Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+    if (readers == null || !readers.hasNext()) {
+      throw new IOException("No image reader can decode the file");
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(in, true, true);
+    return reader;
+  }
+
+  /** @return the width of the output, after subsampling. */
+  public int getWidth() {
+    return (sourceWidth + subsampling - 1) / subsampling;
+  }
+
+  /** @return the height of the output, after subsampling. */
+  public int getHeight() {
+    return (sourceHeight + subsampling - 1) / subsampling;
+  }
+
+  /**
+   * Reads only every factor-th pixel of every factor-th row of the source, starting from the top
+   * left, so the image is reduced factor times in each direction before any transform sees it.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture subsample(int factor) {
+    if (factor <= 0) {
+      throw new IllegalArgumentException("Subsampling factor must be positive.");
+    }
+    this.subsampling = factor;
+    return this;
+  }
+
+  /**
+   * Sets how many output rows are computed at a time. By default strips take up to a quarter of
+   * the maximum heap size.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture stripHeight(int rows) {
+    if (rows <= 0) {
+      throw new IllegalArgumentException("Strip height must be positive.");
+    }
+    this.stripHeight = rows;
+    return this;
+  }
+
+  /**
+   * Runs the transforms of each strip in parallel, as {@link Picture#parallel()} does.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture parallel() {
+    this.parallel = true;
+    return this;
+  }
+
+  /**
+   * Records {@link Picture#invert()}.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture invert() {
+    return add(new Step(Picture::invert, 0, null));
+  }
+
+  /**
+   * Records {@link Picture#grayscale()}.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture grayscale() {
+    return add(new Step(Picture::grayscale, 0, null));
+  }
+
+  /**
+   * Records {@link Picture#flipHorizontal()}.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture flipHorizontal() {
+    return add(new Step(Picture::flipHorizontal, 0, null));
+  }
+
+  /**
+   * Records {@link Picture#flipVertical()}. Each output strip is read from the mirrored strip of
+   * the source.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture flipVertical() {
+    return add(new Step(Picture::flipVertical, 0, null, true));
+  }
+
+  /**
+   * Records {@link Picture#blur()}.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture blur() {
+    return add(new Step(Picture::blur, 1, null));
+  }
+
+  /**
+   * Records {@link Picture#boxBlur(int, EdgeMode)}.
+   *
+   * @return this picture.
+   */
+  public StreamingPicture boxBlur(int radius, EdgeMode edges) {
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius must not be negative.");
+    }
+    return add(new Step(picture -> picture.boxBlur(radius, edges), radius, edges));
+  }
+
+  /**
+   * Records {@link Picture#gaussianBlur(double, EdgeMode)}.
+   *
+   * @param edges {@link EdgeMode#REFLECT} or {@link EdgeMode#WRAP}.
+   * @return this picture.
+   */
+  public StreamingPicture gaussianBlur(double sigma, EdgeMode edges) {
+    if (!(sigma >= 0)) {
+      throw new IllegalArgumentException("Sigma must not be negative.");
+    }
+    if (edges == EdgeMode.CLAMP) {
+      throw new IllegalArgumentException("A streamed Gaussian blur cannot clamp its edges.");
+    }
+    int halo = Arrays.stream(SeparableBlur.gaussianRadii(sigma, Picture.GAUSSIAN_BOX_PASSES)).sum();
+    return add(new Step(picture -> picture.gaussianBlur(sigma, edges), halo, edges));
+  }
+
+  private StreamingPicture add(Step step) {
+    steps.add(step);
+    return this;
+  }
+
+  /**
+   * Reads the source, applies the recorded transforms and writes the result as a PNG, one strip at
+   * a time. The result goes to a temporary file next to filepath, which replaces filepath once it
+   * is complete, so filepath may name the source itself.
+   */
+  public void saveAs(String filepath) {
+    try {
+      Path target = Paths.get(filepath).toAbsolutePath();
+      // Files.createTempFile would make the result private to its owner, unlike saveAs on Picture
+      Path partial =
+          Files.createFile(
+              target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID()));
+      try {
+        write(partial.toFile());
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(partial);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void write(File file) throws IOException {
+    try (ImageInputStream in = ImageIO.createImageInputStream(new File(filepath));
+        ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+      ImageReader reader = reader(in);
+      ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+      try {
+        writer.setOutput(out);
+        writer.write(new StripImage(reader));
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      } finally {
+        writer.dispose();
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * The output of the transforms as an image whose tiles are strips of rows, computed when the
+   * writer asks for them. The latest strip is kept, since writers ask for a row at a time.
+   */
+  private class StripImage implements RenderedImage {
+    private final ImageReader reader;
+    private final int width = StreamingPicture.this.getWidth();
+    private final int height = StreamingPicture.this.getHeight();
+    private final int tileHeight;
+
+    private int stripFirst = -1;
+    private int[] strip;
+
+    StripImage(ImageReader reader) {
+      this.reader = reader;
+      this.tileHeight =
+          stripHeight > 0
+              ? stripHeight
+              : (int) Math.max(1, Math.min(height, defaultStripPixels() / Math.max(1, width)));
+    }
+
+    private long defaultStripPixels() {
+      return Runtime.getRuntime().maxMemory() / STRIP_HEAP_FRACTION / BYTES_PER_STRIP_PIXEL;
+    }
+
+    /** @return rows [first, last) of the output of the first count steps, packed row by row. */
+    private int[] rows(int count, int first, int last) throws IOException {
+      if (count == 0) {
+        return read(first, last);
+      }
+      Step step = steps.get(count - 1);
+      if (step.mirrors) {
+        return apply(step, rows(count - 1, height - last, height - first));
+      }
+      if (step.halo == 0) {
+        return apply(step, rows(count - 1, first, last));
+      }
+      int lo = Math.max(0, first - step.halo);
+      int hi = Math.min(height, last + step.halo);
+      int[] real = rows(count - 1, lo, hi);
+      if (step.edges == null) {
+        return Arrays.copyOfRange(apply(step, real), (first - lo) * width, (last - lo) * width);
+      }
+      // Fill in the halo beyond the picture's edges. Only wrapping (or a halo taller than the
+      // picture) reaches rows outside [lo, hi), and they are fetched as one more strip.
+      int paddedFirst = first - step.halo;
+      int paddedLast = last + step.halo;
+      int extraFirst = height;
+      int extraLast = 0;
+      for (int i = paddedFirst; i < paddedLast; i++) {
+        int y = step.edges.index(i, height);
+        if (y < lo || y >= hi) {
+          extraFirst = Math.min(extraFirst, y);
+          extraLast = Math.max(extraLast, y + 1);
+        }
+      }
+      int[] extra = extraFirst < extraLast ? rows(count - 1, extraFirst, extraLast) : null;
+      int[] padded = new int[(paddedLast - paddedFirst) * width];
+      for (int i = paddedFirst; i < paddedLast; i++) {
+        int y = step.edges.index(i, height);
+        int from = y >= lo && y < hi ? (y - lo) * width : (y - extraFirst) * width;
+        System.arraycopy(
+            y >= lo && y < hi ? real : extra, from, padded, (i - paddedFirst) * width, width);
+      }
+      int[] result = apply(step, padded);
+      return Arrays.copyOfRange(result, step.halo * width, (step.halo + last - first) * width);
+    }
+
+    private int[] apply(Step step, int[] rows) {
+      int count = rows.length / width;
+      Picture picture = new Picture(width, count);
+      picture.setRegion(0, 0, width, count, rows, 0, width);
+      if (parallel) {
+        picture.parallel();
+      }
+      Picture result = step.transform.apply(picture);
+      return result.getRegion(0, 0, width, count, rows, 0, width);
+    }
+
+    private int[] read(int first, int last) throws IOException {
+      ImageReadParam param = reader.getDefaultReadParam();
+      param.setSourceRegion(
+          new Rectangle(
+              0, first * subsampling, sourceWidth, (last - first - 1) * subsampling + 1));
+      param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+      BufferedImage image = reader.read(0, param);
+      int[] rows = image.getRGB(0, 0, width, last - first, null, 0, width);
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] &= 0xffffff;
+      }
+      return rows;
+    }
+
+    private int[] strip(int y) {
+      int first = y - y % tileHeight;
+      if (first != stripFirst) {
+        try {
+          strip = rows(steps.size(), first, Math.min(height, first + tileHeight));
+        } catch (IOException e) {
+          // RenderedImage cannot throw checked exceptions; saveAs unwraps this
+          throw new UncheckedIOException(e);
+        }
+        stripFirst = first;
+      }
+      return strip;
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+      WritableRaster raster = RGB.createCompatibleWritableRaster(rect.width, rect.height);
+      return copyData(raster.createWritableTranslatedChild(rect.x, rect.y));
+    }
+
+    @Override
+    public Raster getData() {
+      return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+      if (raster == null) {
+        raster = RGB.createCompatibleWritableRaster(width, height);
+      }
+      int x = raster.getMinX();
+      int rowWidth = raster.getWidth();
+      for (int y = raster.getMinY(); y < raster.getMinY() + raster.getHeight(); y++) {
+        int from = (y % tileHeight) * width + x;
+        int[] row = Arrays.copyOfRange(strip(y), from, from + rowWidth);
+        raster.setDataElements(x, y, rowWidth, 1, row);
+      }
+      return raster;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+      int first = tileY * tileHeight;
+      return getData(new Rectangle(0, first, width, Math.min(tileHeight, height - first)));
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+      return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+      return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+      return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+      return RGB;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+      return RGB.createCompatibleSampleModel(width, tileHeight);
+    }
+
+    @Override
+    public int getWidth() {
+      return width;
+    }
+
+    @Override
+    public int getHeight() {
+      return height;
+    }
+
+    @Override
+    public int getMinX() {
+      return 0;
+    }
+
+    @Override
+    public int getMinY() {
+      return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+      return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+      return (height + tileHeight - 1) / tileHeight;
+    }
+
+    @Override
+    public int getMinTileX() {
+      return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+      return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+      return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+      return tileHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+      return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+      return 0;
+    }
+  }
+}
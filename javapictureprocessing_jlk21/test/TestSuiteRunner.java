@@ -2,11 +2,15 @@ import org.junit.runner.JUnitCore;
 import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 import picture.PictureProcessorTest;
+import picture.PictureTest;
+import picture.StreamingPictureTest;
 
 public class TestSuiteRunner {
 
   public static void main(String[] args) {
-    Result result = JUnitCore.runClasses(PictureProcessorTest.class);
+    Result result =
+        JUnitCore.runClasses(
+            PictureProcessorTest.class, PictureTest.class, StreamingPictureTest.class);
     for (Failure failure : result.getFailures()) {
       System.out.println(failure.toString());
     }
@@ -1,6 +1,7 @@
 package picture;
 
 import java.io.IOException;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -124,4 +125,76 @@ public class PictureProcessorTest {
         TestSuiteHelper.runMain(
             tmpFolder, "blend", "images/rainbow64x64doc.png", "images/sunset64x32.png"));
   }
+
+  @Test
+  public void parallelBlurSunset() throws IOException {
+    // 320 x 160 is above the size at which parallel transforms split into bands
+    String sunset = TestSuiteHelper.tile(tmpFolder, "images/sunset64x32.png", 5, 5);
+    Assert.assertEquals(
+        new Picture(sunset).blur(),
+        TestSuiteHelper.runMain(tmpFolder, "--parallel", "blur", sunset));
+  }
+
+  @Test
+  public void parallelBlendRainbowSunset() throws IOException {
+    String rainbow = TestSuiteHelper.tile(tmpFolder, "images/rainbow64x64doc.png", 5, 3);
+    String sunset = TestSuiteHelper.tile(tmpFolder, "images/sunset64x32.png", 5, 6);
+    Assert.assertEquals(
+        Picture.blend(List.of(new Picture(rainbow), new Picture(sunset))),
+        TestSuiteHelper.runMain(tmpFolder, "--parallel", "blend", rainbow, sunset));
+  }
+
+  @Test
+  public void boxBlurSunset() throws IOException {
+    Assert.assertEquals(
+        new Picture("images/sunset64x32.png").boxBlur(3),
+        TestSuiteHelper.runMain(tmpFolder, "boxblur", "3", "images/sunset64x32.png"));
+  }
+
+  @Test
+  public void boxBlurWrapSunset() throws IOException {
+    Assert.assertEquals(
+        new Picture("images/sunset64x32.png").boxBlur(3, EdgeMode.WRAP),
+        TestSuiteHelper.runMain(tmpFolder, "boxblur", "3", "wrap", "images/sunset64x32.png"));
+  }
+
+  @Test
+  public void gaussianBlurReflectRainbow() throws IOException {
+    Assert.assertEquals(
+        new Picture("images/rainbow64x64doc.png").gaussianBlur(2.0, EdgeMode.REFLECT),
+        TestSuiteHelper.runMain(
+            tmpFolder, "gaussian", "2.0", "reflect", "images/rainbow64x64doc.png"));
+  }
+
+  @Test
+  public void pipelineSunset() throws IOException {
+    Assert.assertEquals(
+        new Picture("images/sunset64x32.png")
+            .rotate(90)
+            .invert()
+            .boxBlur(2, EdgeMode.WRAP)
+            .flipHorizontal(),
+        TestSuiteHelper.runMain(
+            tmpFolder,
+            "pipeline",
+            "rotate:90",
+            "invert",
+            "boxblur:2:wrap",
+            "flip:H",
+            "images/sunset64x32.png"));
+  }
+
+  @Test
+  public void streamSunset() throws IOException {
+    Assert.assertEquals(
+        new Picture("images/sunset64x32.png").flipVertical().boxBlur(2, EdgeMode.REFLECT).invert(),
+        TestSuiteHelper.runMain(
+            tmpFolder,
+            "stream",
+            "strip:5",
+            "flip:V",
+            "boxblur:2:reflect",
+            "invert",
+            "images/sunset64x32.png"));
+  }
 }
@@ -0,0 +1,307 @@
+package picture;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PictureTest {
+
+  @Test
+  public void rowAccessorsRoundTrip() {
+    Picture picture = new Picture("images/rainbow64x64doc.png");
+    Picture copy = new Picture(picture.getWidth(), picture.getHeight());
+    int[] row = new int[picture.getWidth()];
+    for (int y = 0; y < picture.getHeight(); y++) {
+      copy.setRow(y, picture.getRow(y, row));
+    }
+    Assert.assertEquals(picture, copy);
+  }
+
+  @Test
+  public void regionMatchesPixels() {
+    Picture picture = new Picture("images/sunset64x32.png");
+    int[] region = picture.getRegion(10, 5, 7, 3, new int[2 + 3 * 9], 2, 9);
+    for (int dy = 0; dy < 3; dy++) {
+      for (int dx = 0; dx < 7; dx++) {
+        Color rgb = picture.getPixel(10 + dx, 5 + dy);
+        int expected = (rgb.getRed() << 16) | (rgb.getGreen() << 8) | rgb.getBlue();
+        Assert.assertEquals(expected, region[2 + dy * 9 + dx]);
+      }
+    }
+  }
+
+  @Test
+  public void setRegionIgnoresAlpha() {
+    Picture picture = new Picture(2, 2);
+    int[] source = new int[4];
+    Arrays.fill(source, 0xff123456);
+    picture.setRegion(0, 0, 2, 2, source, 0, 2);
+    Assert.assertEquals(0x123456, picture.getRow(1, new int[2])[1]);
+    Assert.assertEquals(0x56, picture.getPixel(1, 1).getBlue());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void regionOutsidePicture() {
+    new Picture(4, 4).getRegion(2, 2, 3, 1, new int[3], 0, 3);
+  }
+
+  @Test
+  public void blurTinyPictureIsUnchanged() {
+    Picture picture = new Picture(2, 1);
+    picture.setPixel(0, 0, new Color(10, 20, 30));
+    picture.setPixel(1, 0, new Color(200, 100, 0));
+    Assert.assertEquals(picture, picture.blur());
+  }
+
+  @Test
+  public void invertTwiceIsIdentity() {
+    Picture picture = new Picture("images/rainbow64x64doc.png");
+    Assert.assertEquals(picture, picture.invert().invert());
+    Assert.assertEquals(picture.hashCode(), picture.invert().invert().hashCode());
+  }
+
+  @Test
+  public void channelAccessorsMatchColor() {
+    Picture picture = new Picture("images/rainbow64x64doc.png");
+    for (int y = 0; y < picture.getHeight(); y += 7) {
+      for (int x = 0; x < picture.getWidth(); x += 5) {
+        Color rgb = picture.getPixel(x, y);
+        Assert.assertEquals(rgb.getRed(), picture.getRed(x, y));
+        Assert.assertEquals(rgb.getGreen(), picture.getGreen(x, y));
+        Assert.assertEquals(rgb.getBlue(), picture.getBlue(x, y));
+        Assert.assertEquals(rgb.toRGB(), picture.getRGB(x, y));
+      }
+    }
+  }
+
+  @Test
+  public void packTruncatesComponents() {
+    Assert.assertEquals(0x01ff00, Color.pack(257, 255, 256));
+    Picture picture = new Picture(1, 1);
+    picture.setPixel(0, 0, new Color(257, 255, 256));
+    Assert.assertEquals(0x01ff00, picture.getRGB(0, 0));
+  }
+
+  @Test
+  public void flipOddWidthKeepsMiddleColumn() {
+    Picture picture = new Picture(3, 1);
+    picture.setRGB(0, 0, 0x000001);
+    picture.setRGB(1, 0, 0x000002);
+    picture.setRGB(2, 0, 0x000003);
+    Picture flipped = picture.flipHorizontal();
+    Assert.assertEquals(3, flipped.getRGB(0, 0));
+    Assert.assertEquals(2, flipped.getRGB(1, 0));
+    Assert.assertEquals(1, flipped.getRGB(2, 0));
+  }
+
+  @Test
+  public void rotationsCompose() {
+    Picture picture = new Picture("images/sunset64x32.png");
+    Assert.assertEquals(picture.rotate(180), picture.rotate(90).rotate(90));
+    Assert.assertEquals(picture.rotate(270), picture.rotate(180).rotate(90));
+    Assert.assertEquals(picture, picture.rotate(270).rotate(90));
+  }
+
+  @Test
+  public void parallelMatchesSequential() {
+    Picture picture = TestSuiteHelper.random(517, 389, 1);
+    Picture other = TestSuiteHelper.random(450, 400, 2);
+    assertParallelMatches(picture, Picture::invert);
+    assertParallelMatches(picture, Picture::grayscale);
+    assertParallelMatches(picture, p -> p.rotate(90));
+    assertParallelMatches(picture, p -> p.rotate(180));
+    assertParallelMatches(picture, p -> p.rotate(270));
+    assertParallelMatches(picture, Picture::flipHorizontal);
+    assertParallelMatches(picture, Picture::flipVertical);
+    assertParallelMatches(picture, Picture::blur);
+    assertParallelMatches(picture, p -> Picture.blend(List.of(p, other)));
+    assertParallelMatches(picture, p -> Picture.mosaic(List.of(p, other), 7));
+  }
+
+  @Test
+  public void boxBlurMatchesDefinition() {
+    Picture picture = TestSuiteHelper.random(37, 23, 3);
+    for (EdgeMode edges : EdgeMode.values()) {
+      for (int radius : new int[] {0, 1, 4, 30}) {
+        Assert.assertEquals(naiveBoxBlur(picture, radius, edges), picture.boxBlur(radius, edges));
+      }
+    }
+  }
+
+  @Test
+  public void boxBlurOfUniformPictureIsUnchanged() {
+    Picture picture = new Picture("images/red64x64.png");
+    Assert.assertEquals(picture, picture.boxBlur(100));
+    Assert.assertEquals(picture, picture.gaussianBlur(12.5, EdgeMode.REFLECT));
+  }
+
+  @Test
+  public void gaussianRadiiMatchVariance() {
+    for (double sigma : new double[] {1.0, 2.5, 10.0}) {
+      double variance = 0;
+      for (int radius : SeparableBlur.gaussianRadii(sigma, 3)) {
+        int window = 2 * radius + 1;
+        variance += (window * window - 1) / 12.0;
+      }
+      Assert.assertEquals(sigma * sigma, variance, sigma * sigma * 0.35);
+    }
+  }
+
+  @Test
+  public void separableBlurParallelMatchesSequential() {
+    Picture picture = TestSuiteHelper.random(301, 257, 4);
+    assertParallelMatches(picture, p -> p.boxBlur(9));
+    assertParallelMatches(picture, p -> p.gaussianBlur(4.0, EdgeMode.WRAP));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeRadius() {
+    new Picture(4, 4).boxBlur(-1);
+  }
+
+  @Test
+  public void pipelineMatchesEagerTransforms() {
+    Picture picture = TestSuiteHelper.random(37, 23, 5);
+    Assert.assertEquals(
+        picture.rotate(90).flipHorizontal().invert().rotate(270).grayscale().flipVertical(),
+        picture
+            .pipeline()
+            .rotate(90)
+            .flipHorizontal()
+            .invert()
+            .rotate(270)
+            .grayscale()
+            .flipVertical()
+            .apply());
+    Assert.assertEquals(
+        picture.grayscale().rotate(180).boxBlur(2, EdgeMode.WRAP).rotate(90).invert(),
+        picture
+            .pipeline()
+            .grayscale()
+            .rotate(180)
+            .boxBlur(2, EdgeMode.WRAP)
+            .rotate(90)
+            .invert()
+            .apply());
+    Assert.assertEquals(
+        picture.flipVertical().blur().rotate(270).gaussianBlur(1.5, EdgeMode.REFLECT),
+        picture
+            .pipeline()
+            .flipVertical()
+            .blur()
+            .rotate(270)
+            .gaussianBlur(1.5, EdgeMode.REFLECT)
+            .apply());
+  }
+
+  @Test
+  public void pipelineMatchesEveryPairOfSteps() {
+    Picture picture = TestSuiteHelper.random(13, 7, 6);
+    List<UnaryOperator<PicturePipeline>> lazy =
+        List.of(
+            PicturePipeline::invert,
+            PicturePipeline::grayscale,
+            p -> p.rotate(90),
+            p -> p.rotate(180),
+            p -> p.rotate(270),
+            PicturePipeline::flipHorizontal,
+            PicturePipeline::flipVertical,
+            PicturePipeline::blur);
+    List<UnaryOperator<Picture>> eager =
+        List.of(
+            Picture::invert,
+            Picture::grayscale,
+            p -> p.rotate(90),
+            p -> p.rotate(180),
+            p -> p.rotate(270),
+            Picture::flipHorizontal,
+            Picture::flipVertical,
+            Picture::blur);
+    for (int first = 0; first < lazy.size(); first++) {
+      for (int second = 0; second < lazy.size(); second++) {
+        Picture expected = eager.get(second).apply(eager.get(first).apply(picture));
+        PicturePipeline pipeline = lazy.get(first).apply(picture.pipeline());
+        Assert.assertEquals(expected, lazy.get(second).apply(pipeline).apply());
+      }
+    }
+  }
+
+  @Test
+  public void pipelineLeavesSourceAlone() {
+    Picture picture = TestSuiteHelper.random(9, 5, 7);
+    Picture copy = TestSuiteHelper.random(9, 5, 7);
+    Picture empty = picture.pipeline().apply();
+    Assert.assertNotSame(picture, empty);
+    Assert.assertEquals(picture, empty);
+    picture.pipeline().invert().rotate(90).apply();
+    Assert.assertEquals(copy, picture);
+  }
+
+  @Test
+  public void parallelPipelineMatchesSequential() {
+    Picture picture = TestSuiteHelper.random(301, 257, 8);
+    assertParallelMatches(
+        picture,
+        p -> p.pipeline().rotate(270).invert().flipHorizontal().boxBlur(3, EdgeMode.CLAMP).apply());
+  }
+
+  /**
+   * Asserts that transform gives the same picture when its source runs in parallel as when it runs
+   * sequentially, and that the parallel result stays parallel.
+   */
+  private static void assertParallelMatches(Picture picture, UnaryOperator<Picture> transform) {
+    Picture expected = transform.apply(picture);
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      Picture actual = transform.apply(picture.parallel(pool));
+      Assert.assertTrue(actual.isParallel());
+      Assert.assertEquals(expected, actual);
+    } finally {
+      picture.sequential();
+      pool.shutdown();
+    }
+  }
+
+  /** The box blur computed directly from its definition, one window at a time. */
+  private static Picture naiveBoxBlur(Picture picture, int radius, EdgeMode edges) {
+    int width = picture.getWidth();
+    int height = picture.getHeight();
+    int window = 2 * radius + 1;
+    Picture horizontal = new Picture(width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int[] totals = new int[3];
+        for (int dx = -radius; dx <= radius; dx++) {
+          int rgb = picture.getRGB(edges.index(x + dx, width), y);
+          totals[0] += Color.red(rgb);
+          totals[1] += Color.green(rgb);
+          totals[2] += Color.blue(rgb);
+        }
+        horizontal.setRGB(x, y, roundedAverage(totals, window));
+      }
+    }
+    Picture result = new Picture(width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int[] totals = new int[3];
+        for (int dy = -radius; dy <= radius; dy++) {
+          int rgb = horizontal.getRGB(x, edges.index(y + dy, height));
+          totals[0] += Color.red(rgb);
+          totals[1] += Color.green(rgb);
+          totals[2] += Color.blue(rgb);
+        }
+        result.setRGB(x, y, roundedAverage(totals, window));
+      }
+    }
+    return result;
+  }
+
+  private static int roundedAverage(int[] totals, int window) {
+    int half = window / 2;
+    return Color.pack(
+        (totals[0] + half) / window, (totals[1] + half) / window, (totals[2] + half) / window);
+  }
+}
@@ -0,0 +1,116 @@
+package picture;
+
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamingPictureTest {
+
+  @Rule public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private String save(Picture picture) throws IOException {
+    String path = tmpFolder.newFile().getAbsolutePath();
+    picture.saveAs(path);
+    return path;
+  }
+
+  private Picture stream(StreamingPicture picture) throws IOException {
+    String path = tmpFolder.newFile().getAbsolutePath();
+    picture.saveAs(path);
+    return new Picture(path);
+  }
+
+  @Test
+  public void streamingWithoutTransformsCopies() throws IOException {
+    Picture picture = TestSuiteHelper.random(41, 29, 1);
+    String path = save(picture);
+    Assert.assertEquals(picture, stream(new StreamingPicture(path).stripHeight(4)));
+  }
+
+  @Test
+  public void streamingMatchesInMemory() throws IOException {
+    Picture picture = TestSuiteHelper.random(41, 29, 2);
+    String path = save(picture);
+    for (int rows : new int[] {1, 4, 7, 29}) {
+      Assert.assertEquals(
+          picture.invert().flipVertical().boxBlur(3, EdgeMode.WRAP).flipHorizontal(),
+          stream(
+              new StreamingPicture(path)
+                  .stripHeight(rows)
+                  .invert()
+                  .flipVertical()
+                  .boxBlur(3, EdgeMode.WRAP)
+                  .flipHorizontal()));
+      Assert.assertEquals(
+          picture.blur().grayscale().boxBlur(2, EdgeMode.CLAMP).blur(),
+          stream(
+              new StreamingPicture(path)
+                  .stripHeight(rows)
+                  .blur()
+                  .grayscale()
+                  .boxBlur(2, EdgeMode.CLAMP)
+                  .blur()));
+      Assert.assertEquals(
+          picture.gaussianBlur(2.0, EdgeMode.REFLECT).gaussianBlur(1.0, EdgeMode.WRAP),
+          stream(
+              new StreamingPicture(path)
+                  .stripHeight(rows)
+                  .gaussianBlur(2.0, EdgeMode.REFLECT)
+                  .gaussianBlur(1.0, EdgeMode.WRAP)));
+    }
+  }
+
+  @Test
+  public void haloTallerThanPicture() throws IOException {
+    Picture picture = TestSuiteHelper.random(17, 5, 3);
+    String path = save(picture);
+    Assert.assertEquals(
+        picture.boxBlur(8, EdgeMode.REFLECT),
+        stream(new StreamingPicture(path).stripHeight(2).boxBlur(8, EdgeMode.REFLECT)));
+  }
+
+  @Test
+  public void subsamplingReadsEveryNthPixel() throws IOException {
+    Picture picture = TestSuiteHelper.random(41, 29, 4);
+    StreamingPicture streaming = new StreamingPicture(save(picture)).subsample(3).stripHeight(4);
+    Assert.assertEquals(14, streaming.getWidth());
+    Assert.assertEquals(10, streaming.getHeight());
+    Picture expected = new Picture(14, 10);
+    for (int y = 0; y < 10; y++) {
+      for (int x = 0; x < 14; x++) {
+        expected.setRGB(x, y, picture.getRGB(3 * x, 3 * y));
+      }
+    }
+    Assert.assertEquals(expected.invert(), stream(streaming.invert()));
+  }
+
+  @Test
+  public void parallelStreamingMatchesSequential() throws IOException {
+    Picture picture = TestSuiteHelper.random(301, 257, 5);
+    String path = save(picture);
+    Assert.assertEquals(
+        picture.boxBlur(4, EdgeMode.CLAMP).invert(),
+        stream(
+            new StreamingPicture(path)
+                .parallel()
+                .stripHeight(50)
+                .boxBlur(4, EdgeMode.CLAMP)
+                .invert()));
+  }
+
+  @Test
+  public void streamingOverTheSourceReplacesIt() throws IOException {
+    Picture picture = TestSuiteHelper.random(23, 19, 6);
+    String path = save(picture);
+    new StreamingPicture(path).stripHeight(5).invert().saveAs(path);
+    Assert.assertEquals(picture.invert(), new Picture(path));
+    Assert.assertEquals(1, tmpFolder.getRoot().list().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void clampedGaussianCannotStream() throws IOException {
+    new StreamingPicture(save(new Picture(4, 4))).gaussianBlur(1.0, EdgeMode.CLAMP);
+  }
+}
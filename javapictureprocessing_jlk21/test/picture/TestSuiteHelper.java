@@ -2,6 +2,7 @@ package picture;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Random;
 import org.junit.rules.TemporaryFolder;
 
 public class TestSuiteHelper {
@@ -15,6 +16,39 @@ public class TestSuiteHelper {
     return new Picture(outputFile);
   }
 
+  /**
+   * Saves the image in filepath repeated across times horizontally and down times vertically, for
+   * tests that need a picture large enough to be split into bands.
+   */
+  public static String tile(TemporaryFolder folder, String filepath, int across, int down)
+      throws IOException {
+    Picture tile = new Picture(filepath);
+    int width = tile.getWidth();
+    int height = tile.getHeight();
+    int[] pixels = tile.getRegion(0, 0, width, height, new int[width * height], 0, width);
+    Picture picture = new Picture(width * across, height * down);
+    for (int y = 0; y < down; y++) {
+      for (int x = 0; x < across; x++) {
+        picture.setRegion(x * width, y * height, width, height, pixels, 0, width);
+      }
+    }
+    String tiled = folder.newFile().getAbsolutePath();
+    picture.saveAs(tiled);
+    return tiled;
+  }
+
+  /** A picture of pseudo-random pixels, the same for the same seed. */
+  public static Picture random(int width, int height, long seed) {
+    Random rnd = new Random(seed);
+    Picture picture = new Picture(width, height);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        picture.setRGB(x, y, rnd.nextInt());
+      }
+    }
+    return picture;
+  }
+
   private static String[] appendTo(String[] argumentList, String outputFile) {
     String[] arguments = Arrays.copyOf(argumentList, argumentList.length + 1);
     arguments[arguments.length - 1] = outputFile;